@@ -0,0 +1,37 @@
+package com.example.fixhub.bench;
+
+import quickfix.Message;
+import quickfix.SessionID;
+
+/**
+ * Shared messages and session ids for the benchmarks.
+ */
+public final class BenchFixtures {
+
+    private BenchFixtures() {}
+
+    public static SessionID inbound(int i) {
+        return new SessionID("FIX.4.4", "HUB", "CLIENT" + i);
+    }
+
+    public static Message newOrderSingle(String clOrdId, String symbol) {
+        Message m = new Message();
+        Message.Header h = m.getHeader();
+        h.setString(8, "FIX.4.4");
+        h.setString(35, "D");
+        h.setString(49, "CLIENT0");
+        h.setString(56, "HUB");
+        h.setInt(34, 42);
+        h.setString(52, "20240101-12:00:00.000");
+        m.setString(11, clOrdId);
+        m.setString(21, "1");
+        m.setString(55, symbol);
+        m.setChar(54, '1');
+        m.setString(60, "20240101-12:00:00.000");
+        m.setInt(38, 100);
+        m.setChar(40, '2');
+        m.setDouble(44, 101.25);
+        m.setString(1, "ACCT-001");
+        return m;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.fixhub.bench;
+
+import com.example.fixhub.websocket.FIXMessageEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import quickfix.Message;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FIXMessageEventBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Message message;
+    private FIXMessageEvent event;
+
+    @Setup
+    public void setup() {
+        message = BenchFixtures.newOrderSingle("ORD-1", "IBM");
+        event = new FIXMessageEvent("incoming", "FIX.4.4:HUB->CLIENT0", "HUB", "CLIENT0", "D",
+                message.toString(), "FROM_CLIENT");
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return mapper.writeValueAsString(event);
+    }
+
+    @Benchmark
+    public String buildAndSerialize() throws Exception {
+        FIXMessageEvent e = new FIXMessageEvent("incoming", "FIX.4.4:HUB->CLIENT0", "HUB", "CLIENT0", "D",
+                message.toString(), "FROM_CLIENT");
+        return mapper.writeValueAsString(e);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.fixhub.bench;
+
+import com.example.fixhub.metrics.HubMetrics;
+import com.example.fixhub.metrics.TrafficStats;
+import com.example.fixhub.service.OutgoingConnector;
+import com.example.fixhub.service.SessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import quickfix.ApplicationAdapter;
+import quickfix.DefaultMessageFactory;
+import quickfix.DefaultSessionFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.ScreenLogFactory;
+import quickfix.Session;
+import quickfix.SessionFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Destination lookup plus QuickFIX/J encode and store for a routed message, on the calling
+ * thread without the send queue. The sessions are created but never connected, so nothing
+ * reaches a socket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OutgoingConnectorBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int sessions;
+
+    private final List<Session> created = new ArrayList<>();
+    private OutgoingConnector connector;
+    private String destination;
+    private Message message;
+
+    @Setup
+    public void setup() throws Exception {
+        SessionSettings settings = new SessionSettings();
+        settings.setString("ConnectionType", "acceptor");
+        settings.setString("NonStopSession", "Y");
+        settings.setString("UseDataDictionary", "N");
+        SessionFactory factory = new DefaultSessionFactory(new ApplicationAdapter(), new MemoryStoreFactory(),
+                new ScreenLogFactory(false, false, false), new DefaultMessageFactory());
+
+        SessionRegistry registry = new SessionRegistry();
+        for (int i = 0; i < sessions; i++) {
+            Session s = factory.create(new SessionID("FIX.4.4", "HUB", "BROKER" + i), settings);
+            created.add(s);
+            registry.add(s);
+        }
+        connector = new OutgoingConnector(registry, new HubMetrics(new SimpleMeterRegistry()), new TrafficStats());
+        destination = "BROKER" + (sessions - 1);
+        message = BenchFixtures.newOrderSingle("ORD-1", "IBM");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (Session s : created) s.close();
+    }
+
+    @Benchmark
+    public boolean sendNow() {
+        return connector.sendNow(destination, message);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.fixhub.bench;
+
+import com.example.fixhub.fix.PassthroughMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import quickfix.ApplicationAdapter;
+import quickfix.DefaultMessageFactory;
+import quickfix.DefaultSessionFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.ScreenLogFactory;
+import quickfix.Session;
+import quickfix.SessionFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passthrough against a plain send of a routed message. The plain path sends the inbound message
+ * itself, which QuickFIX/J encodes in full; the passthrough path builds a {@link PassthroughMessage}
+ * from the rendered inbound message, as the send stage does, and splices the body in. The send
+ * benchmarks go through {@link Session#send} on a session that is created but never connected, so
+ * they include header stamping and the store but no socket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PassthroughBenchmark {
+
+    private Session session;
+    private Message message;
+    private String raw;
+    private PassthroughMessage template;
+
+    @Setup
+    public void setup() throws Exception {
+        SessionSettings settings = new SessionSettings();
+        settings.setString("ConnectionType", "acceptor");
+        settings.setString("NonStopSession", "Y");
+        settings.setString("UseDataDictionary", "N");
+        SessionFactory factory = new DefaultSessionFactory(new ApplicationAdapter(), new MemoryStoreFactory(),
+                new ScreenLogFactory(false, false, false), new DefaultMessageFactory());
+        session = factory.create(new SessionID("FIX.4.4", "HUB", "BROKER0"), settings);
+        message = BenchFixtures.newOrderSingle("ORD-1", "IBM");
+        raw = message.toString();
+        template = new PassthroughMessage(message, raw);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        session.close();
+    }
+
+    @Benchmark
+    public String encodePlain() {
+        return message.toString();
+    }
+
+    @Benchmark
+    public String encodePassthrough() {
+        return new PassthroughMessage(message, raw).toString();
+    }
+
+    /** The per-destination copy of a fan-out, where the body is extracted once for all targets. */
+    @Benchmark
+    public String encodePassthroughCopy() {
+        return new PassthroughMessage(template).toString();
+    }
+
+    @Benchmark
+    public boolean sendPlain() {
+        return session.send(message);
+    }
+
+    @Benchmark
+    public boolean sendPassthrough() {
+        return session.send(new PassthroughMessage(message, raw));
+    }
+}
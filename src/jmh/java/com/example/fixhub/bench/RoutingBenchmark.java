@@ -0,0 +1,91 @@
+package com.example.fixhub.bench;
+
+import com.example.fixhub.config.HubConfig;
+import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.fix.FixTagView;
+import com.example.fixhub.metrics.HubMetrics;
+import com.example.fixhub.metrics.TrafficStats;
+import com.example.fixhub.service.OutgoingConnector;
+import com.example.fixhub.service.RouteTable;
+import com.example.fixhub.service.RoutingService;
+import com.example.fixhub.service.SessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route matching as done by the route stage. The message matches the last rule, so a linear
+ * scan would have to look at every rule. {@code matchAll} goes through {@link RoutingService}
+ * as the pipeline does: the current table, the per-thread view and the multicast-aware match.
+ * The send that {@link RoutingService#route} adds is measured by OutgoingConnectorBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RoutingBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int rules;
+
+    private RouteTable table;
+    private RoutingService service;
+    private SessionID session;
+    private Message message;
+    private String raw;
+    private final FixTagView view = new FixTagView();
+
+    @Setup
+    public void setup() {
+        List<RouteConfig> routes = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            RouteConfig r = new RouteConfig("CLIENT" + (i % 10), "BROKER" + i);
+            r.conditionTag = 55;
+            r.conditionValue = "SYM" + i;
+            routes.add(r);
+        }
+        table = RouteTable.compile(routes);
+        SessionRegistry registry = new SessionRegistry();
+        service = new RoutingService(new OutgoingConnector(registry,
+                new HubMetrics(new SimpleMeterRegistry()), new TrafficStats()), registry);
+        HubConfig cfg = new HubConfig();
+        cfg.routes = routes;
+        service.publish(cfg);
+        int last = rules - 1;
+        session = BenchFixtures.inbound(last % 10);
+        message = BenchFixtures.newOrderSingle("ORD-1", "SYM" + last);
+        raw = message.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public RouteConfig matchRaw() {
+        return table.match(view.wrap(raw, table.conditionTags()), session);
+    }
+
+    @Benchmark
+    public RouteConfig renderAndMatch() {
+        return table.match(view.wrap(message.toString(), table.conditionTags()), session);
+    }
+
+    @Benchmark
+    public List<RouteConfig> matchAll() {
+        return service.matchAll(raw, session);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.fixhub.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import quickfix.ApplicationAdapter;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QuickFIX/J application for the generated clients and stand-in destinations. Destinations read
+ * the send timestamp the client stamped into the message and record the end-to-end hop latency
+ * per route.
+ */
+class LoadApplication extends ApplicationAdapter {
+
+    static final int SEND_NANOS_TAG = 9000;
+    static final int ROUTE_TAG = 9001;
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    static final class RouteStats {
+        final LongAdder sent = new LongAdder();
+        final LongAdder received = new LongAdder();
+        final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        void reset() {
+            sent.reset();
+            received.reset();
+            latency.reset();
+        }
+    }
+
+    RouteStats route(String key) {
+        return routes.computeIfAbsent(key, k -> new RouteStats());
+    }
+
+    void reset() {
+        routes.values().forEach(RouteStats::reset);
+    }
+
+    @Override
+    public void fromApp(Message message, SessionID sessionId) {
+        long now = System.nanoTime();
+        try {
+            long sentAt = Long.parseLong(message.getString(SEND_NANOS_TAG));
+            RouteStats rs = route(message.getString(ROUTE_TAG));
+            rs.received.increment();
+            rs.latency.recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(0, (now - sentAt) / 1000)));
+        } catch (FieldNotFound | NumberFormatException ignored) {
+            // not one of ours
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.fixhub.load;
+
+import com.example.fixhub.FixHubApplication;
+import com.example.fixhub.service.SessionDispatcher;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import quickfix.DefaultMessageFactory;
+import quickfix.Group;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.ScreenLogFactory;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.ThreadedSocketInitiator;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test on one box. Starts the hub in-process on a generated copy of the hub
+ * config, connects generated initiators to its acceptors and stand-in destinations for its
+ * outgoing names, fires a message mix at a stepped target rate and reports hop latency per route.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:java@load-test -Dload.args="--clients 4 --rate 2000 --max-rate 64000 --duration 20"
+ * </pre>
+ *
+ * Options: --config (hub config, default conf/fixhub.yml), --clients (per acceptor, default 2),
+ * --rate (first step, msgs/sec across all clients, default 1000), --max-rate (last step, default
+ * equal to --rate), --step-factor (default 2), --duration (seconds per step, default 10),
+ * --mix (MsgType weights, default D:60,8:30,W:10), --slo-ms (p99 bound for "sustainable", default 10),
+ * --no-hub (use a hub that is already running on the generated config), --threading (hub
+ * fixhub.threading.model: single, per-session or virtual), --acceptor-mode (per-entry or shared).
+ *
+ * <p>After the sweep the JVM's thread count and heap use are printed with the hub's dispatch
+ * stats. The load generator's own threads are included but do not change with --threading, so
+ * runs with many low-rate clients can be compared across threading models.
+ */
+public class LoadTest {
+
+    private final Map<String, String> opts;
+    private final LoadApplication app = new LoadApplication();
+    private final AtomicLong ids = new AtomicLong();
+
+    private LoadWorkspace workspace;
+    private final List<SessionID> clients = new ArrayList<>();
+    private final List<SessionID> sinks = new ArrayList<>();
+
+    LoadTest(Map<String, String> opts) {
+        this.opts = opts;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) continue;
+            String key = args[i].substring(2);
+            String value = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "true";
+            opts.put(key, value);
+        }
+        new LoadTest(opts).run();
+        System.exit(0);
+    }
+
+    void run() throws Exception {
+        int clientsPerAcceptor = intOpt("clients", 2);
+        workspace = new LoadWorkspace(Paths.get("target", "loadtest"));
+        workspace.generate(new File(opts.getOrDefault("config", "conf/fixhub.yml")), clientsPerAcceptor);
+
+        ConfigurableApplicationContext hub = opts.containsKey("no-hub") ? null : startHub(workspace.dir);
+
+        SessionSettings settings = workspace.initiatorSettings();
+        ThreadedSocketInitiator initiator = new ThreadedSocketInitiator(app, new MemoryStoreFactory(), settings,
+                new ScreenLogFactory(false, false, false), new DefaultMessageFactory());
+        for (LoadWorkspace.Acceptor a : workspace.acceptors) {
+            for (String c : a.clients) clients.add(new SessionID(a.beginString, c, a.hubCompId));
+        }
+        LoadWorkspace.Acceptor sink = workspace.sinkAcceptor();
+        for (String d : workspace.destinations) sinks.add(new SessionID(sink.beginString, d, sink.hubCompId));
+
+        initiator.start();
+        try {
+            awaitLogon(TimeUnit.SECONDS.toMillis(30));
+            List<Map<String, Result>> steps = sweep();
+            report(steps);
+            reportThreads(hub);
+        } finally {
+            initiator.stop(true);
+            if (hub != null) hub.close();
+        }
+    }
+
+    private ConfigurableApplicationContext startHub(Path dir) {
+        return SpringApplication.run(FixHubApplication.class,
+                "--fixhub.config-path=" + dir.resolve("fixhub.yml"),
+                "--fixhub.connections-file=" + dir.resolve("connections.json"),
+                "--fixhub.threading.model=" + opts.getOrDefault("threading", "single"),
+                "--fixhub.acceptor.mode=" + opts.getOrDefault("acceptor-mode", "per-entry"),
+                "--server.port=0",
+                "--logging.level.com.example.fixhub=WARN",
+                "--logging.level.quickfixj=WARN");
+    }
+
+    private void awaitLogon(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<SessionID> all = new ArrayList<>(clients);
+        all.addAll(sinks);
+        while (System.currentTimeMillis() < deadline) {
+            boolean ready = true;
+            for (SessionID sid : all) {
+                Session s = Session.lookupSession(sid);
+                if (s == null || !s.isLoggedOn()) {
+                    ready = false;
+                    break;
+                }
+            }
+            if (ready) return;
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Not all load sessions logged on within " + timeoutMillis + " ms");
+    }
+
+    private List<Map<String, Result>> sweep() throws InterruptedException {
+        int rate = intOpt("rate", 1000);
+        int maxRate = intOpt("max-rate", rate);
+        double factor = Double.parseDouble(opts.getOrDefault("step-factor", "2"));
+        int duration = intOpt("duration", 10);
+        double slo = Double.parseDouble(opts.getOrDefault("slo-ms", "10")) * 1000;
+
+        // short warm-up so the JIT and the hub's pipeline threads settle before measuring
+        runStep(rate, Math.min(duration, 5));
+
+        List<Map<String, Result>> steps = new ArrayList<>();
+        for (int r = rate; r <= maxRate; r = (int) Math.max(r + 1, r * factor)) {
+            Map<String, Result> step = runStep(r, duration);
+            steps.add(step);
+            boolean anySustained = step.values().stream().anyMatch(res -> res.sustained(slo));
+            System.out.printf("step %,d msg/s: %s%n", r, anySustained ? "ok" : "saturated");
+            if (!anySustained) break;
+        }
+        return steps;
+    }
+
+    private Map<String, Result> runStep(int totalRate, int seconds) throws InterruptedException {
+        app.reset();
+        Mix mix = new Mix(opts.getOrDefault("mix", "D:60,8:30,W:10"));
+        double perClient = (double) totalRate / clients.size();
+        long intervalNanos = (long) (1_000_000_000L / Math.max(perClient, 0.001));
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        List<Thread> senders = new ArrayList<>();
+        for (SessionID sid : clients) {
+            String route = workspace.routeOfClient.get(sid.getSenderCompID());
+            Thread t = new Thread(() -> send(sid, route, mix, intervalNanos, end), "load-" + sid.getSenderCompID());
+            t.start();
+            senders.add(t);
+        }
+        for (Thread t : senders) t.join();
+        // let in-flight messages arrive before taking the numbers
+        Thread.sleep(1000);
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        app.routes.forEach((route, rs) -> results.put(route, new Result(totalRate, seconds, rs)));
+        return results;
+    }
+
+    private void send(SessionID sid, String route, Mix mix, long intervalNanos, long end) {
+        Session session = Session.lookupSession(sid);
+        LoadApplication.RouteStats rs = app.route(route);
+        Random random = new Random(sid.hashCode());
+        long next = System.nanoTime();
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            Message m = mix.next(random, ids.incrementAndGet());
+            m.setString(LoadApplication.ROUTE_TAG, route);
+            // stamped against the intended send time so a stalled sender shows up as latency
+            m.setString(LoadApplication.SEND_NANOS_TAG, Long.toString(next));
+            if (session.send(m)) rs.sent.increment();
+            next += intervalNanos;
+        }
+    }
+
+    private void report(List<Map<String, Result>> steps) {
+        double slo = Double.parseDouble(opts.getOrDefault("slo-ms", "10")) * 1000;
+        System.out.println();
+        System.out.printf("%-32s %10s %10s %12s %10s %10s %10s %10s%n",
+                "route", "target/s", "sent", "received/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        Map<String, Integer> maxSustained = new LinkedHashMap<>();
+        for (Map<String, Result> step : steps) {
+            for (Map.Entry<String, Result> e : step.entrySet()) {
+                Result r = e.getValue();
+                System.out.printf("%-32s %,10d %,10d %,12.0f %,10d %,10d %,10d %,10d%n",
+                        e.getKey(), r.targetRate, r.sent, r.receivedPerSecond(),
+                        r.p50, r.p99, r.p999, r.max);
+                if (r.sustained(slo)) maxSustained.merge(e.getKey(), (int) r.receivedPerSecond(), Math::max);
+            }
+        }
+        System.out.println();
+        System.out.println("Max sustainable throughput per route (p99 <= "
+                + opts.getOrDefault("slo-ms", "10") + " ms, >= 99% delivered):");
+        app.routes.keySet().forEach(route ->
+                System.out.printf("  %-32s %,d msg/s%n", route, maxSustained.getOrDefault(route, 0)));
+    }
+
+    private void reportThreads(ConfigurableApplicationContext hub) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        System.out.println();
+        System.out.printf("threads: %,d live, %,d peak; heap used %,d MB with %,d client sessions%n",
+                threads.getThreadCount(), threads.getPeakThreadCount(), heap.getUsed() >> 20, clients.size());
+        if (hub != null) System.out.println("hub dispatch: " + hub.getBean(SessionDispatcher.class).stats());
+    }
+
+    private int intOpt(String name, int def) {
+        return opts.containsKey(name) ? Integer.parseInt(opts.get(name)) : def;
+    }
+
+    static final class Result {
+        final int targetRate;
+        final int seconds;
+        final long sent;
+        final long received;
+        final long p50;
+        final long p99;
+        final long p999;
+        final long max;
+
+        Result(int targetRate, int seconds, LoadApplication.RouteStats rs) {
+            this.targetRate = targetRate;
+            this.seconds = seconds;
+            this.sent = rs.sent.sum();
+            this.received = rs.received.sum();
+            Histogram h = rs.latency.copy();
+            this.p50 = h.getValueAtPercentile(50);
+            this.p99 = h.getValueAtPercentile(99);
+            this.p999 = h.getValueAtPercentile(99.9);
+            this.max = h.getMaxValue();
+        }
+
+        double receivedPerSecond() {
+            return (double) received / seconds;
+        }
+
+        boolean sustained(double sloMicros) {
+            return sent > 0 && received >= sent * 0.99 && p99 <= sloMicros;
+        }
+    }
+
+    /**
+     * Weighted choice of NewOrderSingle (D), ExecutionReport (8) and MarketDataSnapshotFullRefresh (W).
+     */
+    static final class Mix {
+        private final String[] types;
+        private final int[] cumulative;
+
+        Mix(String spec) {
+            String[] parts = spec.split(",");
+            types = new String[parts.length];
+            cumulative = new int[parts.length];
+            int total = 0;
+            for (int i = 0; i < parts.length; i++) {
+                String[] kv = parts[i].trim().split(":");
+                types[i] = kv[0];
+                total += kv.length > 1 ? Integer.parseInt(kv[1]) : 1;
+                cumulative[i] = total;
+            }
+        }
+
+        Message next(Random random, long id) {
+            int pick = random.nextInt(cumulative[cumulative.length - 1]);
+            int i = 0;
+            while (pick >= cumulative[i]) i++;
+            return build(types[i], id);
+        }
+
+        private static Message build(String type, long id) {
+            Message m = new Message();
+            m.getHeader().setString(35, type);
+            switch (type) {
+                case "D":
+                    m.setString(11, "L" + id);
+                    m.setString(55, "SYM" + (id % 50));
+                    m.setChar(54, '1');
+                    m.setString(60, "20240101-12:00:00.000");
+                    m.setInt(38, 100);
+                    m.setChar(40, '2');
+                    m.setDouble(44, 101.25);
+                    break;
+                case "8":
+                    m.setString(37, "O" + id);
+                    m.setString(17, "E" + id);
+                    m.setChar(150, '0');
+                    m.setChar(39, '0');
+                    m.setString(55, "SYM" + (id % 50));
+                    m.setChar(54, '1');
+                    m.setInt(151, 100);
+                    m.setInt(14, 0);
+                    m.setDouble(6, 0);
+                    break;
+                case "W":
+                    m.setString(55, "SYM" + (id % 50));
+                    // one entry: without a data dictionary the hub cannot tell repeated group tags apart
+                    Group entry = new Group(268, 269);
+                    entry.setChar(269, '0');
+                    entry.setDouble(270, 101.25);
+                    entry.setInt(271, 500);
+                    m.addGroup(entry);
+                    break;
+                default:
+                    m.setString(58, "load " + id);
+            }
+            return m;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.fixhub.load;
+
+import com.example.fixhub.config.HubConfig;
+import com.example.fixhub.config.IncomingConfig;
+import com.example.fixhub.config.OutgoingConfig;
+import com.example.fixhub.config.RouteConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import quickfix.ConfigError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives a self-contained hub setup from the real one: every acceptor in the hub config keeps its
+ * port and BeginString but gets {@code clients} generated counterparties plus one stand-in session
+ * per outgoing destination, and the routes are rewritten so each client is routed to one of the
+ * destinations its incoming was routed to.
+ */
+class LoadWorkspace {
+
+    static final class Acceptor {
+        String name;
+        int port;
+        String beginString;
+        String hubCompId;
+        List<String> clients = new ArrayList<>();
+    }
+
+    final Path dir;
+    final List<Acceptor> acceptors = new ArrayList<>();
+    final List<String> destinations = new ArrayList<>();
+    // client CompID -> "incoming->destination"
+    final Map<String, String> routeOfClient = new LinkedHashMap<>();
+    File hubConfigFile;
+
+    LoadWorkspace(Path dir) {
+        this.dir = dir;
+    }
+
+    void generate(File hubConfig, int clientsPerAcceptor) throws IOException, ConfigError {
+        ObjectMapper yaml = new ObjectMapper(new YAMLFactory());
+        HubConfig src = yaml.readValue(hubConfig, HubConfig.class);
+        if (src.incoming == null || src.incoming.isEmpty()) throw new IllegalArgumentException("hub config has no incoming entries");
+        if (src.outgoing == null || src.outgoing.isEmpty()) throw new IllegalArgumentException("hub config has no outgoing entries");
+        Files.createDirectories(dir);
+
+        for (OutgoingConfig oc : src.outgoing) destinations.add(oc.name);
+
+        HubConfig out = new HubConfig();
+        out.incoming = new ArrayList<>();
+        out.outgoing = new ArrayList<>();
+        out.routes = new ArrayList<>();
+
+        for (IncomingConfig ic : src.incoming) {
+            Acceptor a = readAcceptor(ic);
+            List<String> dests = destinationsFor(src, ic, a);
+            for (int i = 0; i < clientsPerAcceptor; i++) {
+                String client = "LOAD-" + a.name + "-" + i;
+                a.clients.add(client);
+                String dest = dests.get(i % dests.size());
+                routeOfClient.put(client, a.name + "->" + dest);
+                out.routes.add(new RouteConfig(client, dest));
+            }
+            acceptors.add(a);
+
+            IncomingConfig gen = new IncomingConfig();
+            gen.name = ic.name;
+            gen.port = a.port;
+            gen.fixVersion = a.beginString;
+            gen.settingsFile = writeAcceptorSettings(a, acceptors.size() == 1).getPath();
+            out.incoming.add(gen);
+        }
+        for (OutgoingConfig oc : src.outgoing) {
+            OutgoingConfig gen = new OutgoingConfig();
+            gen.name = oc.name;
+            // no host: the stand-ins log on to the hub, so it must not start initiators for them
+            gen.port = oc.port;
+            gen.fixVersion = oc.fixVersion;
+            out.outgoing.add(gen);
+        }
+
+        hubConfigFile = dir.resolve("fixhub.yml").toFile();
+        yaml.writeValue(hubConfigFile, out);
+    }
+
+    /** The acceptor that the stand-in destinations log on to. */
+    Acceptor sinkAcceptor() {
+        return acceptors.get(0);
+    }
+
+    private Acceptor readAcceptor(IncomingConfig ic) throws IOException, ConfigError {
+        String path = ic.settingsFile == null || ic.settingsFile.isBlank() ? "conf/quickfixj.cfg" : ic.settingsFile;
+        Acceptor a = new Acceptor();
+        a.name = ic.name;
+        a.port = ic.port;
+        a.beginString = ic.fixVersion == null ? "FIX.4.4" : ic.fixVersion;
+        a.hubCompId = "HUB";
+        try (InputStream in = new FileInputStream(path)) {
+            SessionSettings s = new SessionSettings(in);
+            for (Iterator<SessionID> it = s.sectionIterator(); it.hasNext(); ) {
+                SessionID sid = it.next();
+                a.beginString = sid.getBeginString();
+                a.hubCompId = sid.getSenderCompID();
+                if (s.isSetting(sid, "SocketAcceptPort")) a.port = (int) s.getLong(sid, "SocketAcceptPort");
+                break;
+            }
+        }
+        return a;
+    }
+
+    private List<String> destinationsFor(HubConfig src, IncomingConfig ic, Acceptor a) {
+        List<String> dests = new ArrayList<>();
+        if (src.routes != null) {
+            for (RouteConfig r : src.routes) {
+                boolean applies = r.from == null || r.from.isBlank() || r.from.equals(ic.name) || r.from.equals(a.hubCompId);
+                if (applies && destinations.contains(r.to) && !dests.contains(r.to)) dests.add(r.to);
+            }
+        }
+        if (dests.isEmpty()) dests.add(destinations.get(0));
+        return dests;
+    }
+
+    private File writeAcceptorSettings(Acceptor a, boolean withSinks) throws IOException {
+        File f = dir.resolve(a.name + ".cfg").toFile();
+        try (PrintWriter w = new PrintWriter(f)) {
+            w.println("[default]");
+            w.println("ConnectionType=acceptor");
+            w.println("SocketAcceptPort=" + a.port);
+            w.println("SocketAcceptAddress=127.0.0.1");
+            w.println("NonStopSession=Y");
+            w.println("HeartBtInt=30");
+            w.println("ResetOnLogon=Y");
+            w.println("UseDataDictionary=N");
+            w.println("FileStorePath=" + dir.resolve("store").resolve(a.name));
+            w.println("FileLogPath=" + dir.resolve("log").resolve(a.name));
+            List<String> counterparties = new ArrayList<>(a.clients);
+            if (withSinks) counterparties.addAll(destinations);
+            for (String cp : counterparties) {
+                w.println();
+                w.println("[SESSION]");
+                w.println("BeginString=" + a.beginString);
+                w.println("SenderCompID=" + a.hubCompId);
+                w.println("TargetCompID=" + cp);
+            }
+        }
+        return f;
+    }
+
+    /** Initiator settings for every generated client and stand-in destination. */
+    SessionSettings initiatorSettings() {
+        SessionSettings s = new SessionSettings();
+        s.setString("ConnectionType", "initiator");
+        s.setString("SocketConnectHost", "127.0.0.1");
+        s.setString("NonStopSession", "Y");
+        s.setString("HeartBtInt", "30");
+        s.setString("ReconnectInterval", "1");
+        s.setString("ResetOnLogon", "Y");
+        s.setString("UseDataDictionary", "N");
+        for (Acceptor a : acceptors) {
+            for (String client : a.clients) addSession(s, a, client);
+        }
+        Acceptor sink = sinkAcceptor();
+        for (String dest : destinations) addSession(s, sink, dest);
+        return s;
+    }
+
+    private static void addSession(SessionSettings s, Acceptor a, String compId) {
+        SessionID sid = new SessionID(a.beginString, compId, a.hubCompId);
+        s.setString(sid, "SocketConnectPort", Integer.toString(a.port));
+    }
+}
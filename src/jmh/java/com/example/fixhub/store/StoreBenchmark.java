@@ -0,0 +1,85 @@
+package com.example.fixhub.store;
+
+import com.example.fixhub.bench.BenchFixtures;
+import com.example.fixhub.config.StoreConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import quickfix.FileStoreFactory;
+import quickfix.MessageStore;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a session pays its message store per sent message: store the message and bump the next
+ * sender sequence number. Variants are {@code type-sync}; plain {@code file} is the FileStore
+ * with FileStoreSync=N, which is how the hub ran before stores were configurable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreBenchmark {
+
+    private static final int RESET_EVERY = 1 << 20;
+
+    @Param({"file", "file-always", "mmap-none", "mmap-batch", "mmap-always", "memory"})
+    public String store;
+
+    private Path dir;
+    private MessageStoreProvider provider;
+    private MessageStore messageStore;
+    private String message;
+    private int seq;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("fixhub-store-bench");
+        provider = new MessageStoreProvider();
+        ReflectionTestUtils.setField(provider, "syncIntervalMs", 10L);
+        ReflectionTestUtils.setField(provider, "initialMapMb", 64);
+        provider.start();
+
+        SessionSettings settings = new SessionSettings();
+        settings.setString(FileStoreFactory.SETTING_FILE_STORE_PATH, dir.toString());
+        StoreConfig config = new StoreConfig();
+        String[] parts = store.split("-");
+        config.type = parts[0];
+        config.sync = parts.length > 1 ? parts[1] : "none";
+        messageStore = provider.factory(config, settings).create(new SessionID("FIX.4.4", "HUB", "BROKER"));
+        message = BenchFixtures.newOrderSingle("ORD-1", "IBM").toString();
+        seq = messageStore.getNextSenderMsgSeqNum();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (messageStore instanceof Closeable) ((Closeable) messageStore).close();
+        provider.stop();
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public boolean storeAndIncrement() throws Exception {
+        // keep the store bounded; the reset is amortised over a million messages
+        if (seq > RESET_EVERY) {
+            messageStore.reset();
+            seq = messageStore.getNextSenderMsgSeqNum();
+        }
+        boolean stored = messageStore.set(seq++, message);
+        messageStore.incrNextSenderMsgSeqNum();
+        return stored;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.fixhub.websocket;
+
+import com.example.fixhub.bench.BenchFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing events to connected stream clients. {@code broadcast} is what the pipeline
+ * thread pays; {@code broadcastAndFlush} adds the flusher's per-batch work for a full batch.
+ * {@code clients=0} is the short-circuit taken when nobody is connected.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BroadcastBenchmark {
+
+    private static final int BATCH = 256;
+
+    @Param({"0", "1", "10", "100"})
+    public int clients;
+
+    private MessageStreamHandler handler;
+    private FIXMessageEvent event;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        handler = new MessageStreamHandler();
+        // no Spring context here, so fill in the @Value fields. The timed flush is pushed out of the
+        // way; in broadcastAndFlush a batch never reaches the size trigger, so only we flush it
+        ReflectionTestUtils.setField(handler, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(handler, "batchSize", 2 * BATCH);
+        ReflectionTestUtils.setField(handler, "clientQueueFrames", 1 << 16);
+        ReflectionTestUtils.setField(handler, "sampleEvery", 10);
+        ReflectionTestUtils.setField(handler, "senderThreads", 1);
+        handler.start();
+        for (int i = 0; i < clients; i++) {
+            handler.afterConnectionEstablished(new NoopWebSocketSession("client-" + i));
+        }
+        event = new FIXMessageEvent("incoming", "FIX.4.4:HUB->CLIENT0", "HUB", "CLIENT0", "D",
+                BenchFixtures.newOrderSingle("ORD-1", "IBM").toString(), "FROM_CLIENT");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handler.stop();
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+        handler.flush();
+    }
+
+    @Benchmark
+    public void broadcast() {
+        handler.broadcastMessage(event);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void broadcastAndFlush() {
+        for (int i = 0; i < BATCH; i++) handler.broadcastMessage(event);
+        handler.flush();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.fixhub.websocket;
+
+import com.example.fixhub.bench.BenchFixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One flush batch written as a frame: a JSON array with Jackson, as the flusher used to, and with
+ * the streaming encoder into its reused buffer plus the frame copy; and the binary frame a
+ * {@value BinaryFrameEncoder#PROTOCOL} client gets once its dictionary is warm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventEncoderBenchmark {
+
+    @Param({"1", "256"})
+    public int events;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final EventEncoder encoder = new EventEncoder();
+    private final BinaryFrameEncoder binary = new BinaryFrameEncoder();
+    private final List<FIXMessageEvent> batch = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        String raw = BenchFixtures.newOrderSingle("ORD-1", "IBM").toString();
+        for (int i = 0; i < events; i++) {
+            batch.add(new FIXMessageEvent("incoming", "FIX.4.4:HUB->CLIENT0", "HUB", "CLIENT0", "D",
+                    raw, "FROM_CLIENT"));
+        }
+        binary.encode(batch);
+    }
+
+    @Benchmark
+    public byte[] jackson() throws Exception {
+        return mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public byte[] encoder() {
+        encoder.reset();
+        encoder.array(batch);
+        return encoder.copy(0, encoder.length());
+    }
+
+    @Benchmark
+    public int binary() {
+        return binary.encode(batch).getPayloadLength();
+    }
+}
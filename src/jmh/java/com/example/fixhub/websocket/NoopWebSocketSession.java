@@ -0,0 +1,47 @@
+package com.example.fixhub.websocket;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A WebSocket client that accepts and discards every frame.
+ */
+class NoopWebSocketSession implements WebSocketSession {
+    private final String id;
+    private final Map<String, Object> attributes = new HashMap<>();
+    final LongAdder frames = new LongAdder();
+
+    NoopWebSocketSession(String id) {
+        this.id = id;
+    }
+
+    @Override public String getId() { return id; }
+    @Override public URI getUri() { return URI.create("ws://localhost/ws/messages"); }
+    @Override public HttpHeaders getHandshakeHeaders() { return new HttpHeaders(); }
+    @Override public Map<String, Object> getAttributes() { return attributes; }
+    @Override public Principal getPrincipal() { return null; }
+    @Override public InetSocketAddress getLocalAddress() { return null; }
+    @Override public InetSocketAddress getRemoteAddress() { return null; }
+    @Override public String getAcceptedProtocol() { return null; }
+    @Override public void setTextMessageSizeLimit(int messageSizeLimit) {}
+    @Override public int getTextMessageSizeLimit() { return Integer.MAX_VALUE; }
+    @Override public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+    @Override public int getBinaryMessageSizeLimit() { return Integer.MAX_VALUE; }
+    @Override public List<WebSocketExtension> getExtensions() { return Collections.emptyList(); }
+    @Override public void sendMessage(WebSocketMessage<?> message) { frames.increment(); }
+    @Override public boolean isOpen() { return true; }
+    @Override public void close() {}
+    @Override public void close(CloseStatus status) {}
+}
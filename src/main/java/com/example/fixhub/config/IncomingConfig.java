@@ -5,6 +5,7 @@ public class IncomingConfig {
     public int port;
     public String fixVersion;
     public String settingsFile;
+    public StoreConfig store;
 
     public IncomingConfig() {}
 }
@@ -1,10 +1,27 @@
 package com.example.fixhub.config;
 
+import java.util.List;
+
+/**
+ * A destination. With a host and port the hub connects out to it with {@code sessions} parallel
+ * initiator sessions; without one it names a counterparty that logs on to our acceptors.
+ */
 public class OutgoingConfig {
     public String name;
     public String host;
     public int port;
     public String fixVersion;
+    public String targetCompID; // CompID of the live session behind this name; defaults to name
+    public String senderCompID; // our CompID towards the destination; defaults to FIXHUB
+    // one per session; when unset and sessions > 1, senderCompID is suffixed with _1, _2, ...
+    public List<String> senderCompIDs;
+    public int sessions = 1;
+    public String balance; // round-robin (default) or least-queue
+    public List<Integer> reconnectBackoff; // seconds between attempts, the last one repeats
+    public int heartBtInt = 30;
+    public Integer rateLimit;   // messages per second per session; unset uses fixhub.outbound.rate-limit
+    public Integer maxInFlight; // writes pending on a session's socket; unset uses fixhub.outbound.max-in-flight
+    public StoreConfig store;
 
     public OutgoingConfig() {}
 }
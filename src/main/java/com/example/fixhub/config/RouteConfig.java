@@ -1,10 +1,18 @@
 package com.example.fixhub.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class RouteConfig {
     public String from; // incoming name
     public String to;   // outgoing name
-    public Integer conditionTag; // optional FIX tag to inspect
+    public List<String> toAll; // fan-out: further outgoing names that get the same message
+    public boolean multicast;  // keep matching: later rules that also match send the message too
+    public Integer conditionTag; // optional FIX tag to inspect; its first occurrence, groups included
     public String conditionValue; // optional value to match
+    public boolean passthrough; // forward the inbound body bytes as-is instead of re-encoding
+
+    private String label; // from->to, built once; rules are not changed after they are loaded
 
     public RouteConfig() {}
 
@@ -24,4 +32,41 @@ public class RouteConfig {
 
     public String getConditionValue() { return conditionValue; }
     public void setConditionValue(String conditionValue) { this.conditionValue = conditionValue; }
+
+    public boolean isPassthrough() { return passthrough; }
+    public void setPassthrough(boolean passthrough) { this.passthrough = passthrough; }
+
+    public List<String> getToAll() { return toAll; }
+    public void setToAll(List<String> toAll) { this.toAll = toAll; }
+
+    public boolean isMulticast() { return multicast; }
+    public void setMulticast(boolean multicast) { this.multicast = multicast; }
+
+    /**
+     * The {@code from->to} name of the rule, as used in route tags and statistics. Built on first
+     * use, which {@link com.example.fixhub.service.RouteTable#compile} makes happen before the
+     * rule is matched, so the message path only reads it.
+     */
+    public String label() {
+        String l = label;
+        if (l == null) label = l = (from == null ? "*" : from) + "->" + to;
+        return l;
+    }
+
+    /** Whether the rule sends to more than its {@code to}. */
+    public boolean fansOut() {
+        return toAll != null && !toAll.isEmpty();
+    }
+
+    /** {@code to} followed by {@code toAll}, without duplicates. */
+    public List<String> destinations() {
+        List<String> d = new ArrayList<>(1 + (toAll == null ? 0 : toAll.size()));
+        if (to != null) d.add(to);
+        if (toAll != null) {
+            for (String t : toAll) {
+                if (t != null && !d.contains(t)) d.add(t);
+            }
+        }
+        return d;
+    }
 }
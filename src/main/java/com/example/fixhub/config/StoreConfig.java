@@ -0,0 +1,19 @@
+package com.example.fixhub.config;
+
+/**
+ * Message store for the sessions of an incoming or connection entry.
+ * {@code type}: file (QuickFIX/J FileStore, the default), mmap or memory.
+ * {@code sync}: none, batch (group commit every fixhub.store.sync-interval-ms) or always.
+ * Left unset, the file store keeps its FileStoreSync setting from the session settings.
+ */
+public class StoreConfig {
+    public String type;
+    public String sync;
+
+    public StoreConfig() {}
+
+    @Override
+    public String toString() {
+        return (type == null ? "file" : type) + (sync == null ? "" : "/" + sync);
+    }
+}
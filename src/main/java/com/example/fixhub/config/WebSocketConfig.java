@@ -1,12 +1,18 @@
 package com.example.fixhub.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.example.fixhub.websocket.MessageStreamHandler;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
@@ -14,9 +20,22 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private MessageStreamHandler messageStreamHandler;
 
+    // permessage-deflate is negotiated by the container when the client offers it
+    @Value("${fixhub.websocket.deflate:true}")
+    private boolean deflate;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(messageStreamHandler, "/ws/messages")
+                .setHandshakeHandler(new DefaultHandshakeHandler() {
+                    @Override
+                    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                            List<WebSocketExtension> requested, List<WebSocketExtension> supported) {
+                        List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requested, supported);
+                        if (deflate) return accepted;
+                        return accepted.stream().filter(e -> !"permessage-deflate".equals(e.getName())).toList();
+                    }
+                })
                 .setAllowedOrigins("*");
     }
 }
@@ -1,14 +1,18 @@
 package com.example.fixhub.controller;
 
 import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.metrics.TrafficStats;
 import com.example.fixhub.service.FixEngineService;
+import com.example.fixhub.service.RoutingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api")
@@ -17,68 +21,88 @@ public class ConfigController {
     @Autowired
     private FixEngineService fixEngineService;
 
-    private static List<RouteConfig> routes = new ArrayList<>();
+    @Autowired
+    private RoutingService routingService;
 
-    static {
-        RouteConfig r1 = new RouteConfig();
-        r1.from = "incoming";
-        r1.to = "outgoing";
-        r1.conditionTag = null;
-        r1.conditionValue = null;
-        routes.add(r1);
-    }
+    @Autowired
+    private TrafficStats trafficStats;
 
     @GetMapping("/config")
     public ResponseEntity<String> getConfig() {
         return ResponseEntity.ok("default config");
     }
 
+    /**
+     * The live routes. The ETag is the routes version; sending it back as If-Match on an edit
+     * makes the edit fail with 412 if someone else changed the routes in between.
+     */
     @GetMapping("/routes")
     public ResponseEntity<List<RouteConfig>> getRoutes() {
-        return ResponseEntity.ok(routes);
+        long version = routingService.version();
+        return ResponseEntity.ok().eTag(Long.toString(version)).body(routingService.routes());
+    }
+
+    /** Traffic statistics per route, keyed by from->to; rules with the same pair are counted together. */
+    @GetMapping("/routes/stats")
+    public ResponseEntity<Map<String, Object>> getRouteStats() {
+        return ResponseEntity.ok(trafficStats.routes());
     }
 
     @PostMapping("/routes")
-    public ResponseEntity<RouteConfig> createRoute(@RequestBody RouteConfig route) {
-        if (route.from == null || route.from.isBlank()) {
+    public ResponseEntity<RouteConfig> createRoute(@RequestBody RouteConfig route,
+                                                   @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        if (!valid(route)) {
             return ResponseEntity.badRequest().build();
         }
-        if (route.to == null || route.to.isBlank()) {
-            return ResponseEntity.badRequest().build();
-        }
-        routes.add(route);
-        return ResponseEntity.ok(route);
+        return edit(ifMatch, route, rules -> rules.add(route));
     }
 
     @PutMapping("/routes/{index}")
-    public ResponseEntity<RouteConfig> updateRoute(@PathVariable int index, @RequestBody RouteConfig route) {
-        if (index < 0 || index >= routes.size()) {
-            return ResponseEntity.notFound().build();
-        }
-        if (route.from == null || route.from.isBlank()) {
+    public ResponseEntity<RouteConfig> updateRoute(@PathVariable int index, @RequestBody RouteConfig route,
+                                                   @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        if (!valid(route)) {
             return ResponseEntity.badRequest().build();
         }
-        if (route.to == null || route.to.isBlank()) {
-            return ResponseEntity.badRequest().build();
-        }
-        routes.set(index, route);
-        return ResponseEntity.ok(route);
+        return edit(ifMatch, route, rules -> rules.set(index, route));
     }
 
     @DeleteMapping("/routes/{index}")
-    public ResponseEntity<Void> deleteRoute(@PathVariable int index) {
-        if (index < 0 || index >= routes.size()) {
+    public ResponseEntity<RouteConfig> deleteRoute(@PathVariable int index,
+                                                   @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        ResponseEntity<RouteConfig> r = edit(ifMatch, null, rules -> rules.remove(index));
+        return r.getStatusCode().is2xxSuccessful() ? ResponseEntity.noContent().eTag(r.getHeaders().getETag()).build() : r;
+    }
+
+    private static boolean valid(RouteConfig route) {
+        return route.from != null && !route.from.isBlank() && route.to != null && !route.to.isBlank();
+    }
+
+    private ResponseEntity<RouteConfig> edit(String ifMatch, RouteConfig body, Consumer<List<RouteConfig>> change) {
+        long expected;
+        try {
+            expected = ifMatch == null ? -1 : Long.parseLong(ifMatch.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        long version;
+        try {
+            version = routingService.editRoutes(expected, change);
+        } catch (IndexOutOfBoundsException e) {
             return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (version < 0) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(Long.toString(routingService.version())).build();
         }
-        routes.remove(index);
-        return ResponseEntity.noContent().build();
+        return ResponseEntity.ok().eTag(Long.toString(version)).body(body);
     }
 
     @PostMapping("/config/reload")
     public ResponseEntity<String> reloadConfig(@RequestParam String path) {
         File f = new File(path);
         if (!f.exists()) return ResponseEntity.badRequest().body("file not found");
-        fixEngineService.reloadConfig(f);
+        if (!fixEngineService.reloadConfig(f)) return ResponseEntity.badRequest().body("invalid config");
         return ResponseEntity.ok("reloaded");
     }
 }
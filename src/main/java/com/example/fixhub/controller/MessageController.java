@@ -0,0 +1,75 @@
+package com.example.fixhub.controller;
+
+import com.example.fixhub.journal.JournalQuery;
+import com.example.fixhub.journal.JournalRecord;
+import com.example.fixhub.journal.MessageJournal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Searches the message journal, e.g.
+ * {@code /api/messages?from=2024-01-01T09:00:00Z&session=FIX.4.4:HUB->CLIENT1&msgType=D,8&limit=50}.
+ * {@code from} and {@code to} take epoch millis or ISO-8601 instants; {@code order=desc} returns
+ * the newest messages first.
+ */
+@RestController
+@RequestMapping("/api/messages")
+public class MessageController {
+
+    private static final int MAX_LIMIT = 10_000;
+
+    @Autowired
+    private MessageJournal messageJournal;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> query(@RequestParam(required = false) String from,
+                                                     @RequestParam(required = false) String to,
+                                                     @RequestParam(required = false) String session,
+                                                     @RequestParam(required = false) String msgType,
+                                                     @RequestParam(required = false) String direction,
+                                                     @RequestParam(defaultValue = "100") int limit,
+                                                     @RequestParam(defaultValue = "asc") String order) {
+        Map<String, Object> response = new HashMap<>();
+        JournalQuery q = new JournalQuery();
+        try {
+            if (from != null) q.from = parseTime(from);
+            if (to != null) q.to = parseTime(to);
+        } catch (Exception e) {
+            response.put("status", "error");
+            response.put("message", "from/to must be epoch millis or an ISO-8601 instant");
+            return ResponseEntity.badRequest().body(response);
+        }
+        q.sessions = split(session);
+        q.msgTypes = split(msgType);
+        q.direction = direction;
+        q.limit = Math.min(Math.max(limit, 0), MAX_LIMIT);
+        q.newestFirst = "desc".equalsIgnoreCase(order);
+
+        List<JournalRecord> messages = messageJournal.query(q);
+        response.put("count", messages.size());
+        response.put("truncated", messages.size() >= q.limit);
+        response.put("messages", messages);
+        return ResponseEntity.ok(response);
+    }
+
+    private static long parseTime(String value) {
+        return value.chars().allMatch(Character::isDigit) ? Long.parseLong(value) : Instant.parse(value).toEpochMilli();
+    }
+
+    private static Set<String> split(String value) {
+        if (value == null || value.isBlank()) return null;
+        Set<String> values = new LinkedHashSet<>();
+        for (String v : value.split(",")) {
+            if (!v.isBlank()) values.add(v.trim());
+        }
+        return values.isEmpty() ? null : values;
+    }
+}
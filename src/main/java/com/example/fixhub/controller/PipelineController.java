@@ -0,0 +1,35 @@
+package com.example.fixhub.controller;
+
+import com.example.fixhub.pipeline.RoutingPipeline;
+import com.example.fixhub.service.OutgoingConnector;
+import com.example.fixhub.service.SessionDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/pipeline")
+public class PipelineController {
+
+    @Autowired
+    private RoutingPipeline routingPipeline;
+
+    @Autowired
+    private SessionDispatcher sessionDispatcher;
+
+    @Autowired
+    private OutgoingConnector outgoingConnector;
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(routingPipeline.stats());
+        stats.put("dispatch", sessionDispatcher.stats());
+        stats.put("outbound", outgoingConnector.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.fixhub.controller;
 
+import com.example.fixhub.metrics.TrafficStats;
 import com.example.fixhub.service.FixEngineService;
+import com.example.fixhub.service.SessionOperations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import quickfix.SessionID;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,25 +22,95 @@ public class SessionController {
     @Autowired
     private FixEngineService fixEngineService;
 
+    @Autowired
+    private TrafficStats trafficStats;
+
+    @Autowired
+    private SessionOperations sessionOperations;
+
     @GetMapping
     public ResponseEntity<List<SessionID>> list() {
         List<SessionID> sessions = fixEngineService.listSessions();
         return ResponseEntity.ok(sessions);
     }
 
-    @PostMapping("/{sessionId}/disconnect")
-    public ResponseEntity<Map<String, String>> disconnect(@PathVariable String sessionId) {
-        Map<String, String> response = new HashMap<>();
+    /** Traffic statistics of every session that logged on or had traffic since start. */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(trafficStats.sessions());
+    }
+
+    /**
+     * Traffic statistics of one session, by its id as listed, e.g. {@code FIX.4.4:CLIENT->FIXHUB}
+     * URL-encoded. A logged-on session without traffic yet gets zero counts.
+     */
+    @GetMapping("/{sessionId}/stats")
+    public ResponseEntity<Map<String, Object>> stats(@PathVariable String sessionId) {
+        Map<String, Object> stats = trafficStats.session(sessionId);
+        return stats == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Runs {@code disconnect}, {@code logout}, {@code reset} or {@code seqnums} on one session,
+     * logged on or not, and returns its next sequence numbers afterwards. {@code seqnums} takes
+     * {@code nextSenderSeqNum} and/or {@code nextTargetSeqNum}.
+     */
+    @PostMapping("/{sessionId}/{action}")
+    public ResponseEntity<Map<String, Object>> operate(@PathVariable String sessionId, @PathVariable String action,
+                                                       @RequestParam(required = false) Integer nextSenderSeqNum,
+                                                       @RequestParam(required = false) Integer nextTargetSeqNum) {
+        SessionID id = sessionOperations.find(sessionId);
+        if (id == null) return ResponseEntity.notFound().build();
+        SessionOperations.Request req = new SessionOperations.Request();
+        req.action = action;
+        req.nextSenderSeqNum = nextSenderSeqNum;
+        req.nextTargetSeqNum = nextTargetSeqNum;
         try {
-            // For now, we can log the disconnect request
-            // In future, implement actual session disconnection logic
-            response.put("status", "disconnect_initiated");
-            response.put("message", "Session disconnect initiated for: " + sessionId);
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("session", sessionId);
+            response.put("action", action);
+            response.putAll(sessionOperations.apply(id, req));
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalArgumentException e) {
+            return error(e);
+        }
+    }
+
+    /**
+     * Starts a bulk operation on the sessions matching the CompID patterns, e.g.
+     * {@code {"action":"reset","sender":"FIXHUB","target":"CLIENT_*"}}. Answers 202 with the job
+     * at once; its results are at the Location.
+     */
+    @PostMapping("/operations")
+    public ResponseEntity<Map<String, Object>> bulk(@RequestBody SessionOperations.Request req) {
+        try {
+            SessionOperations.Job job = sessionOperations.submit(req);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/sessions/operations/" + job.id()))
+                    .body(job.snapshot(false));
+        } catch (IllegalArgumentException e) {
+            return error(e);
         }
     }
+
+    @GetMapping("/operations")
+    public ResponseEntity<List<Map<String, Object>>> jobs() {
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (SessionOperations.Job job : sessionOperations.jobs()) jobs.add(job.snapshot(false));
+        return ResponseEntity.ok(jobs);
+    }
+
+    /** A bulk operation with the result of every session done so far. */
+    @GetMapping("/operations/{jobId}")
+    public ResponseEntity<Map<String, Object>> job(@PathVariable long jobId) {
+        SessionOperations.Job job = sessionOperations.job(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.snapshot(true));
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(IllegalArgumentException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(response);
+    }
 }
@@ -24,6 +24,7 @@ public class WebSocketStatusController {
             status.put("enabled", true);
             status.put("connected_sessions", messageStreamHandler.getConnectedSessions());
             status.put("endpoint", "/ws/messages");
+            status.putAll(messageStreamHandler.getStats());
         } else {
             status.put("enabled", false);
             status.put("connected_sessions", 0);
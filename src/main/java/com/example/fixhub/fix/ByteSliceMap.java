@@ -0,0 +1,56 @@
+package com.example.fixhub.fix;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Immutable open-addressing map from pre-encoded byte strings to int values, probed directly with
+ * a slice of another buffer so lookups allocate nothing.
+ */
+public final class ByteSliceMap {
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private final byte[][] keys;
+    private final int[] values;
+    private final int mask;
+
+    public ByteSliceMap(Map<String, Integer> entries) {
+        int cap = Integer.highestOneBit(Math.max(entries.size(), 1) * 2 + 1) << 1;
+        keys = new byte[cap][];
+        values = new int[cap];
+        mask = cap - 1;
+        for (Map.Entry<String, Integer> e : entries.entrySet()) {
+            byte[] k = e.getKey().getBytes(StandardCharsets.ISO_8859_1);
+            int i = hash(k, 0, k.length) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = k;
+            values[i] = e.getValue();
+        }
+    }
+
+    public int get(byte[] buf, int off, int len) {
+        int i = hash(buf, off, len) & mask;
+        byte[] k;
+        while ((k = keys[i]) != null) {
+            if (k.length == len && equal(k, buf, off)) return values[i];
+            i = (i + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    private static boolean equal(byte[] k, byte[] buf, int off) {
+        for (int j = 0; j < k.length; j++) {
+            if (k[j] != buf[off + j]) return false;
+        }
+        return true;
+    }
+
+    // package-private so tests can pick colliding keys
+    static int hash(byte[] b, int off, int len) {
+        int h = 0x811c9dc5;
+        for (int j = off; j < off + len; j++) {
+            h = (h ^ b[j]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
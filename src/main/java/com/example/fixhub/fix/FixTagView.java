@@ -0,0 +1,121 @@
+package com.example.fixhub.fix;
+
+/**
+ * Reusable, single-threaded view over a tag=value FIX message. One pass over the bytes records
+ * the offset and length of the first occurrence of every selected tag; values are then compared
+ * in place, so reading them allocates nothing. A tag that is absent reports {@link #NOT_FOUND}.
+ *
+ * <p>The view has no data dictionary, so it cannot tell header, body and repeating group fields
+ * apart: the first occurrence of a tag anywhere in the message is the one recorded. A tag that
+ * only appears inside a group, such as Symbol (55) in the NoRelatedSym entries of a
+ * MarketDataRequest, is found here, where QuickFIX/J's {@code Message.getString} would report it
+ * missing; when a tag is both in the body and in a later group, the body's value wins only if it
+ * comes first.
+ */
+public final class FixTagView {
+    public static final int NOT_FOUND = -1;
+
+    private static final byte SOH = 1;
+
+    private byte[] buf = new byte[1024];
+    private int length;
+    private TagSelector selector = TagSelector.NONE;
+    private int[] offsets = new int[0];
+    private int[] lengths = new int[0];
+
+    /**
+     * Copy the message into the view's buffer and index the selected tags. Characters are taken
+     * as single bytes, which holds for the ASCII tag=value encoding.
+     */
+    public FixTagView wrap(CharSequence raw, TagSelector selector) {
+        int n = raw.length();
+        if (buf.length < n) buf = new byte[Math.max(n, buf.length * 2)];
+        for (int i = 0; i < n; i++) buf[i] = (byte) raw.charAt(i);
+        return scan(n, selector);
+    }
+
+    /**
+     * Index the selected tags of a message already encoded in {@code bytes[0..len)}.
+     */
+    public FixTagView wrap(byte[] bytes, int len, TagSelector selector) {
+        if (buf.length < len) buf = new byte[Math.max(len, buf.length * 2)];
+        System.arraycopy(bytes, 0, buf, 0, len);
+        return scan(len, selector);
+    }
+
+    private FixTagView scan(int len, TagSelector selector) {
+        this.length = len;
+        this.selector = selector;
+        int slots = selector.size();
+        if (offsets.length < slots) {
+            offsets = new int[slots];
+            lengths = new int[slots];
+        }
+        for (int s = 0; s < slots; s++) offsets[s] = NOT_FOUND;
+        if (slots == 0) return this;
+
+        int found = 0;
+        int pos = 0;
+        while (pos < len && found < slots) {
+            int tag = 0;
+            boolean numeric = true;
+            int i = pos;
+            byte b;
+            while (i < len && (b = buf[i]) != '=' && b != SOH) {
+                if (b >= '0' && b <= '9') tag = tag * 10 + (b - '0');
+                else numeric = false;
+                i++;
+            }
+            if (i == len || buf[i] == SOH) {
+                // a field without '=', e.g. an empty one between two SOHs: skip it
+                pos = i + 1;
+                continue;
+            }
+            int valueStart = i + 1;
+            int end = valueStart;
+            while (end < len && buf[end] != SOH) end++;
+            if (numeric && tag > 0) {
+                int slot = selector.slot(tag);
+                if (slot >= 0 && offsets[slot] == NOT_FOUND) {
+                    offsets[slot] = valueStart;
+                    lengths[slot] = end - valueStart;
+                    found++;
+                }
+            }
+            pos = end + 1;
+        }
+        return this;
+    }
+
+    public TagSelector selector() {
+        return selector;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Offset of the slot's value in {@link #buffer()}, or {@link #NOT_FOUND}.
+     */
+    public int valueOffset(int slot) {
+        return offsets[slot];
+    }
+
+    public int valueLength(int slot) {
+        return offsets[slot] == NOT_FOUND ? 0 : lengths[slot];
+    }
+
+    public boolean valueEquals(int slot, byte[] expected) {
+        int off = offsets[slot];
+        if (off == NOT_FOUND || lengths[slot] != expected.length) return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (buf[off + i] != expected[i]) return false;
+        }
+        return true;
+    }
+}
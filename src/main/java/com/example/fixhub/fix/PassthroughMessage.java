@@ -0,0 +1,121 @@
+package com.example.fixhub.fix;
+
+import quickfix.FieldMap;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.StringField;
+
+import java.util.Iterator;
+
+/**
+ * An outbound message whose body is the verbatim body of an inbound message. Only the header is
+ * held as fields, so the session can stamp CompIDs, MsgSeqNum and SendingTime as usual; when the
+ * session serializes it, the body bytes are spliced in unchanged and BodyLength and CheckSum are
+ * recomputed in reusable per-thread buffers. Header repeating groups, such as NoHops, are copied
+ * and written with the header.
+ *
+ * <p>The saving over a plain send is the body: it is neither copied field by field into a new
+ * message nor encoded again per session. PassthroughBenchmark compares the two.
+ */
+public class PassthroughMessage extends Message {
+    private static final char SOH = '\u0001';
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+    private static final ThreadLocal<StringBuilder> HEADER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String body;
+
+    /**
+     * @param source the parsed inbound message, used for its header fields only
+     * @param raw    the inbound message as received on the wire
+     */
+    public PassthroughMessage(Message source, String raw) {
+        this(RawFix.body(raw, source.getHeader()), source.getHeader());
+    }
+
+    /**
+     * A copy with its own header and the same body string, for sending one message to several
+     * sessions: each session stamps its own header, the body is not extracted or encoded again.
+     */
+    public PassthroughMessage(PassthroughMessage template) {
+        this(template.body, template.getHeader());
+    }
+
+    private PassthroughMessage(String body, Header src) {
+        this.body = body;
+        Header h = getHeader();
+        for (Iterator<quickfix.Field<?>> it = src.iterator(); it.hasNext(); ) {
+            quickfix.Field<?> f = it.next();
+            int tag = f.getTag();
+            // parsed fields are StringFields, whose value is the wire form; others go through the map
+            if (f instanceof StringField) {
+                h.setString(tag, ((StringField) f).getValue());
+                continue;
+            }
+            try {
+                h.setString(tag, src.getString(tag));
+            } catch (FieldNotFound ignored) {
+                // not possible while iterating the set fields
+            }
+        }
+        for (Iterator<Integer> it = src.groupKeyIterator(); it.hasNext(); ) {
+            // addGroup copies the group and keeps the count field in step
+            for (Group g : src.getGroups(it.next())) h.addGroup(g);
+        }
+    }
+
+    public String body() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        // header fields after BodyLength first, so BodyLength is known before anything is written
+        // to the output and the message is built front to back without shifting it
+        StringBuilder header = HEADER.get();
+        header.setLength(0);
+        Header h = getHeader();
+        append(header, h, 35);
+        for (Iterator<quickfix.Field<?>> it = h.iterator(); it.hasNext(); ) {
+            int tag = it.next().getTag();
+            if (tag == 8 || tag == 9 || tag == 35 || tag == 10) continue;
+            append(header, h, tag);
+            if (h.hasGroup(tag)) appendGroups(header, h, tag);
+        }
+
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        sb.append("8=").append(value(h, 8)).append(SOH)
+                .append("9=").append(header.length() + body.length()).append(SOH)
+                .append(header)
+                .append(body);
+        sb.append("10=").append(RawFix.checksum(sb)).append(SOH);
+        return sb.toString();
+    }
+
+    /** The entries of a repeating group after its count field, each led by its delimiter field. */
+    private static void appendGroups(StringBuilder sb, FieldMap m, int countTag) {
+        for (Group g : m.getGroups(countTag)) {
+            int delim = g.delim();
+            append(sb, g, delim);
+            for (Iterator<quickfix.Field<?>> it = g.iterator(); it.hasNext(); ) {
+                int tag = it.next().getTag();
+                if (tag == delim) continue;
+                append(sb, g, tag);
+                if (g.hasGroup(tag)) appendGroups(sb, g, tag);
+            }
+        }
+    }
+
+    private static void append(StringBuilder sb, FieldMap m, int tag) {
+        sb.append(tag).append('=').append(value(m, tag)).append(SOH);
+    }
+
+    private static String value(FieldMap m, int tag) {
+        try {
+            return m.getString(tag);
+        } catch (FieldNotFound e) {
+            throw new IllegalStateException("Missing header field " + tag, e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.fixhub.fix;
+
+import quickfix.FieldMap;
+import quickfix.Group;
+
+import java.util.Iterator;
+
+/**
+ * Helpers for working on tag=value FIX strings without parsing them into field maps.
+ */
+public final class RawFix {
+    private static final char SOH = '\u0001';
+
+    private RawFix() {}
+
+    /**
+     * Returns the body of a raw message: every field after the header and before CheckSum,
+     * each one SOH-terminated. Header fields are recognised by being set on {@code header}, or
+     * on an entry of one of its repeating groups.
+     */
+    public static String body(String raw, FieldMap header) {
+        boolean groups = header.groupKeyIterator().hasNext();
+        int start = 0;
+        int len = raw.length();
+        while (start < len) {
+            int eq = raw.indexOf('=', start);
+            if (eq < 0) break;
+            int soh = raw.indexOf(SOH, eq);
+            if (soh < 0) break;
+            int tag = parseTag(raw, start, eq);
+            if (tag < 0 || !(header.isSetField(tag) || groups && inGroup(header, tag))) break;
+            start = soh + 1;
+        }
+        int end = raw.lastIndexOf(SOH + "10=");
+        if (end < start) return "";
+        return raw.substring(start, end + 1);
+    }
+
+    /**
+     * FIX checksum (sum of bytes modulo 256) formatted as three digits. Assumes single-byte characters.
+     */
+    public static String checksum(CharSequence s) {
+        int sum = 0;
+        for (int i = 0; i < s.length(); i++) sum += s.charAt(i);
+        sum &= 0xFF;
+        return sum < 10 ? "00" + sum : sum < 100 ? "0" + sum : Integer.toString(sum);
+    }
+
+    private static boolean inGroup(FieldMap m, int tag) {
+        for (Iterator<Integer> it = m.groupKeyIterator(); it.hasNext(); ) {
+            for (Group g : m.getGroups(it.next())) {
+                if (g.isSetField(tag) || inGroup(g, tag)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static int parseTag(String s, int from, int to) {
+        if (from == to) return -1;
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.fixhub.fix;
+
+import java.util.Arrays;
+
+/**
+ * A fixed set of tags a {@link FixTagView} should capture, each mapped to a dense slot number.
+ */
+public final class TagSelector {
+    public static final TagSelector NONE = of();
+
+    private static final int DIRECT_LIMIT = 8192;
+
+    private final int[] tags;
+    // slot + 1 by tag for small tags; 0 means not selected
+    private final short[] direct;
+
+    private TagSelector(int[] tags) {
+        this.tags = tags;
+        int max = tags.length == 0 ? 0 : tags[tags.length - 1];
+        this.direct = new short[Math.min(max, DIRECT_LIMIT - 1) + 1];
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i] < direct.length) direct[tags[i]] = (short) (i + 1);
+        }
+    }
+
+    public static TagSelector of(int... tags) {
+        int[] sorted = Arrays.stream(tags).filter(t -> t > 0).distinct().sorted().toArray();
+        return new TagSelector(sorted);
+    }
+
+    public int size() {
+        return tags.length;
+    }
+
+    public int tag(int slot) {
+        return tags[slot];
+    }
+
+    /**
+     * Slot for the tag, or -1 if the tag is not selected.
+     */
+    public int slot(int tag) {
+        if (tag < direct.length) return direct[tag] - 1;
+        if (tag < DIRECT_LIMIT) return -1;
+        int i = Arrays.binarySearch(tags, tag);
+        return i < 0 ? -1 : i;
+    }
+}
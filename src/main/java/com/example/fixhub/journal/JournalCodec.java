@@ -0,0 +1,121 @@
+package com.example.fixhub.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary layout of a journal record:
+ * <pre>
+ * int    length of the rest of the record
+ * byte   kind (1 inbound, 2 outbound)
+ * byte   flags
+ * long   epoch millis
+ * short  length + bytes   session id
+ * short  length + bytes   MsgType
+ * short  length + bytes   destination (may be empty)
+ * int    length + bytes   message in tag=value form (may be empty)
+ * </pre>
+ * Strings are written one byte per char, which holds for FIX tag=value text. The length prefix is
+ * written last, so a record cut short by a crash reads as the end of the segment.
+ */
+public final class JournalCodec {
+
+    static final int KIND = 4;
+    static final int FLAGS = 5;
+    static final int MILLIS = 6;
+    static final int SESSION = 14;
+
+    private JournalCodec() {}
+
+    public static int size(JournalEntry e) {
+        return 4 + 1 + 1 + 8 + 2 + len(e.session) + 2 + len(e.msgType) + 2 + len(e.destination) + 4 + len(e.raw);
+    }
+
+    public static void encode(JournalEntry e, ByteBuffer buf) {
+        int start = buf.position();
+        buf.putInt(0);
+        buf.put(e.kind);
+        buf.put(e.flags);
+        buf.putLong(e.epochMillis);
+        putShortString(buf, e.session);
+        putShortString(buf, e.msgType);
+        putShortString(buf, e.destination);
+        int n = len(e.raw);
+        buf.putInt(n);
+        for (int i = 0; i < n; i++) buf.put((byte) e.raw.charAt(i));
+        buf.putInt(start, buf.position() - start - 4);
+    }
+
+    /**
+     * Decodes the record at {@code off} using absolute reads only, so readers can share the
+     * buffer with the writer.
+     */
+    public static JournalRecord decode(ByteBuffer buf, int off) {
+        int p = off + SESSION;
+        String session = getShortString(buf, p);
+        p += 2 + buf.getShort(p);
+        String msgType = getShortString(buf, p);
+        p += 2 + buf.getShort(p);
+        String destination = getShortString(buf, p);
+        p += 2 + buf.getShort(p);
+        int n = buf.getInt(p);
+        byte[] raw = new byte[n];
+        buf.get(p + 4, raw, 0, n);
+        return new JournalRecord(buf.get(off + KIND), buf.get(off + FLAGS), buf.getLong(off + MILLIS),
+                session, msgType, destination.isEmpty() ? null : destination,
+                new String(raw, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Whether a whole record starts at {@code off} and ends by {@code limit}: a positive length
+     * whose fields add up to it. Recovery stops at the first offset where this is false.
+     */
+    static boolean complete(ByteBuffer buf, int off, int limit) {
+        if (off + 4 > limit) return false;
+        int len = buf.getInt(off);
+        long end = (long) off + 4 + len;
+        if (len < SESSION - 4 + 2 + 2 + 2 + 4 || end > limit) return false;
+        int p = off + SESSION;
+        for (int i = 0; i < 3; i++) {
+            int n = buf.getShort(p);
+            if (n < 0 || p + 2 + n + 4 > end) return false;
+            p += 2 + n;
+        }
+        return p + 4 + (long) buf.getInt(p) == end;
+    }
+
+    /** Hash of the string stored at {@code off}, equal to {@link String#hashCode()} of the original. */
+    static int hashShortString(ByteBuffer buf, int off) {
+        int n = buf.getShort(off);
+        int h = 0;
+        for (int i = 0; i < n; i++) h = 31 * h + (buf.get(off + 2 + i) & 0xff);
+        return h;
+    }
+
+    static boolean shortStringEquals(ByteBuffer buf, int off, byte[] value) {
+        int n = buf.getShort(off);
+        if (n != value.length) return false;
+        for (int i = 0; i < n; i++) {
+            if (buf.get(off + 2 + i) != value[i]) return false;
+        }
+        return true;
+    }
+
+    private static String getShortString(ByteBuffer buf, int off) {
+        int n = buf.getShort(off);
+        if (n == 0) return "";
+        byte[] b = new byte[n];
+        buf.get(off + 2, b, 0, n);
+        return new String(b, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void putShortString(ByteBuffer buf, String s) {
+        int n = Math.min(len(s), Short.MAX_VALUE);
+        buf.putShort((short) n);
+        for (int i = 0; i < n; i++) buf.put((byte) s.charAt(i));
+    }
+
+    private static int len(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.fixhub.journal;
+
+/**
+ * One slot of the journal ring. Slots are preallocated and reused; producers fill the fields and
+ * then publish the slot by writing its sequence.
+ */
+public final class JournalEntry {
+    public static final byte INBOUND = 1;
+    public static final byte OUTBOUND = 2;
+
+    public static final byte FLAG_OK = 1; // inbound: matched a route; outbound: accepted by the session
+
+    volatile long published = -1;
+
+    public byte kind;
+    public byte flags;
+    public long epochMillis;
+    public String session;
+    public String msgType;
+    // route destination for inbound entries, destination name for outbound ones
+    public String destination;
+    public String raw;
+
+    void clear() {
+        session = null;
+        msgType = null;
+        destination = null;
+        raw = null;
+    }
+
+    public boolean ok() {
+        return (flags & FLAG_OK) != 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.fixhub.journal;
+
+import java.util.Set;
+
+/**
+ * Filter for {@link MessageJournal#query}. Unset fields match everything. A session filter
+ * matches a record's session or its destination, so outgoing traffic can be found by the name of
+ * the connection it went to.
+ */
+public class JournalQuery {
+    public long from = Long.MIN_VALUE;
+    public long to = Long.MAX_VALUE;
+    public Set<String> sessions;
+    public Set<String> msgTypes;
+    public String direction; // "in", "out" or null for both
+    public int limit = 100;
+    // return the newest matches first instead of the oldest
+    public boolean newestFirst;
+}
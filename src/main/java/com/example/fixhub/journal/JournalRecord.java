@@ -0,0 +1,29 @@
+package com.example.fixhub.journal;
+
+/**
+ * A decoded journal record, as returned by queries.
+ */
+public final class JournalRecord {
+    public final String direction; // "in" or "out"
+    public final long timestamp;
+    public final String session;
+    public final String msgType;
+    // route destination for inbound records, destination name for outbound ones
+    public final String destination;
+    public final boolean ok;
+    public final String raw;
+
+    JournalRecord(byte kind, byte flags, long timestamp, String session, String msgType, String destination, String raw) {
+        this.direction = kind == JournalEntry.INBOUND ? "in" : "out";
+        this.timestamp = timestamp;
+        this.session = session;
+        this.msgType = msgType;
+        this.destination = destination;
+        this.ok = (flags & JournalEntry.FLAG_OK) != 0;
+        this.raw = raw;
+    }
+
+    public boolean inbound() {
+        return "in".equals(direction);
+    }
+}
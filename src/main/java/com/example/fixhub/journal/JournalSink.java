@@ -0,0 +1,13 @@
+package com.example.fixhub.journal;
+
+import java.io.IOException;
+
+/**
+ * Where the journal writer thread puts entries. Only that thread calls a sink.
+ */
+public interface JournalSink {
+
+    void append(JournalEntry entry) throws IOException;
+
+    void close() throws IOException;
+}
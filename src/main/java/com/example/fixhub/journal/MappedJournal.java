@@ -0,0 +1,405 @@
+package com.example.fixhub.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Journal stored in memory-mapped segment files ({@code journal-<n>.seg}). The writer thread
+ * encodes records straight into the mapping; queries read the same mappings with absolute reads
+ * up to the last committed offset, so they neither copy segments nor hold up the writer.
+ *
+ * <p>Each segment keeps a sparse in-memory index with one block per {@code indexInterval} records:
+ * the block's offsets, time range and 64-bit hash masks of the sessions and MsgTypes in it. A query
+ * skips blocks that cannot match and decodes only matching records. The index is rebuilt by
+ * scanning the segments on startup. Once more than {@code maxSegments} exist the oldest is deleted,
+ * on startup as well as on roll-over.
+ *
+ * <p>Records reach the page cache as soon as they are written, so a JVM crash loses nothing that
+ * was committed; they are forced to disk on roll-over and on close. Each record is followed by a
+ * zero length, written before the record's own length, so recovery stops after the last complete
+ * record and never reads what a torn or older write left beyond it.
+ */
+class MappedJournal implements JournalSink {
+    private static final Logger logger = LoggerFactory.getLogger(MappedJournal.class);
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+
+    // a segment is a single mapping, which cannot reach 2 GB
+    static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final int indexInterval;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment active;
+
+    MappedJournal(Path dir, long segmentBytes, int maxSegments, int indexInterval) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentSize(segmentBytes);
+        this.maxSegments = Math.max(maxSegments, 1);
+        this.indexInterval = Math.max(indexInterval, 1);
+        Files.createDirectories(dir);
+
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().startsWith(PREFIX)
+                            && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path f : files) {
+            if (active != null) active.seal();
+            active = Segment.recover(f, segmentId(f), this.indexInterval);
+            segments.add(active);
+        }
+        if (active == null) roll(0);
+        trim();
+        logger.info("Journal opened in {} with {} segment(s)", dir, segments.size());
+    }
+
+    @Override
+    public void append(JournalEntry entry) throws IOException {
+        int size = JournalCodec.size(entry);
+        if (active.committed + size > active.capacity) roll(size);
+        active.append(entry, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        active.seal();
+        active.buf.force();
+    }
+
+    private void roll(int recordSize) throws IOException {
+        long id = 0;
+        if (active != null) {
+            active.seal();
+            active.buf.force();
+            id = active.id + 1;
+        }
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, id, SUFFIX));
+        active = Segment.create(file, id, Math.max(segmentBytes, recordSize + 4), indexInterval);
+        segments.add(active);
+        trim();
+    }
+
+    private void trim() {
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            // readers still holding the mapping keep working; the file is gone once they drop it
+            try {
+                Files.deleteIfExists(oldest.file);
+            } catch (IOException e) {
+                logger.warn("Failed to delete journal segment {}", oldest.file, e);
+            }
+        }
+    }
+
+    List<JournalRecord> query(JournalQuery q) {
+        Filter f = new Filter(q);
+        List<JournalRecord> out = new ArrayList<>(Math.min(Math.max(q.limit, 0), 1024));
+        if (q.limit <= 0) return out;
+        List<Segment> snapshot = new ArrayList<>(segments);
+        if (q.newestFirst) Collections.reverse(snapshot);
+        for (Segment s : snapshot) {
+            if (s.scan(f, q.limit, q.newestFirst, out)) break;
+        }
+        return out;
+    }
+
+    /** The requested segment size, capped at {@link #MAX_SEGMENT_BYTES}. */
+    static int segmentSize(long bytes) {
+        if (bytes <= 0) throw new IllegalArgumentException("Journal segment size must be positive, got " + bytes);
+        if (bytes <= MAX_SEGMENT_BYTES) return (int) bytes;
+        logger.warn("Journal segment size of {} MB is above the {} MB limit; using the limit",
+                bytes >> 20, MAX_SEGMENT_BYTES >> 20);
+        return MAX_SEGMENT_BYTES;
+    }
+
+    int segmentBytes() {
+        return segmentBytes;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    long bytes() {
+        long n = 0;
+        for (Segment s : segments) n += s.committed;
+        return n;
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long bit(int hash) {
+        return 1L << (hash & 63);
+    }
+
+    private static final class Block {
+        final int start;
+        final int end;
+        final long minMillis;
+        final long maxMillis;
+        final long sessions;
+        final long msgTypes;
+        final int kinds;
+
+        Block(int start, int end, long minMillis, long maxMillis, long sessions, long msgTypes, int kinds) {
+            this.start = start;
+            this.end = end;
+            this.minMillis = minMillis;
+            this.maxMillis = maxMillis;
+            this.sessions = sessions;
+            this.msgTypes = msgTypes;
+            this.kinds = kinds;
+        }
+    }
+
+    private static final class Segment {
+        final long id;
+        final Path file;
+        final MappedByteBuffer buf;
+        final int capacity;
+        private final int indexInterval;
+
+        // readers see everything below committed; written after the index is updated
+        volatile int committed;
+        private volatile Block[] blocks = new Block[16];
+        private volatile int blockCount;
+
+        // block being filled, writer thread only
+        private int openStart;
+        private int openCount;
+        private long openMin = Long.MAX_VALUE;
+        private long openMax = Long.MIN_VALUE;
+        private long openSessions;
+        private long openTypes;
+        private int openKinds;
+
+        private Segment(long id, Path file, MappedByteBuffer buf, int indexInterval) {
+            this.id = id;
+            this.file = file;
+            this.buf = buf;
+            this.capacity = buf.capacity();
+            this.indexInterval = indexInterval;
+        }
+
+        static Segment create(Path file, long id, int size, int indexInterval) throws IOException {
+            return new Segment(id, file, map(file, size), indexInterval);
+        }
+
+        static Segment recover(Path file, long id, int indexInterval) throws IOException {
+            Segment s = new Segment(id, file, map(file, (int) Math.min(Files.size(file), Integer.MAX_VALUE)), indexInterval);
+            ByteBuffer b = s.buf;
+            int off = 0;
+            while (JournalCodec.complete(b, off, s.capacity)) {
+                int len = b.getInt(off);
+                int sessionOff = off + JournalCodec.SESSION;
+                int typeOff = sessionOff + 2 + b.getShort(sessionOff);
+                int destOff = typeOff + 2 + b.getShort(typeOff);
+                s.index(off, b.getLong(off + JournalCodec.MILLIS), b.get(off + JournalCodec.KIND),
+                        JournalCodec.hashShortString(b, sessionOff),
+                        JournalCodec.hashShortString(b, destOff),
+                        JournalCodec.hashShortString(b, typeOff),
+                        off + 4 + len);
+                off += 4 + len;
+            }
+            s.buf.position(off);
+            s.committed = off;
+            return s;
+        }
+
+        private static MappedByteBuffer map(Path file, int size) throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        void append(JournalEntry e, int size) {
+            int start = buf.position();
+            if (start + size + 4 <= capacity) buf.putInt(start + size, 0);
+            JournalCodec.encode(e, buf);
+            int end = buf.position();
+            index(start, e.epochMillis, e.kind, hash(e.session), hash(e.destination), hash(e.msgType), end);
+            committed = end;
+        }
+
+        private void index(int start, long millis, byte kind, int session, int destination, int msgType, int end) {
+            if (openCount == 0) openStart = start;
+            if (millis < openMin) openMin = millis;
+            if (millis > openMax) openMax = millis;
+            openSessions |= bit(session) | bit(destination);
+            openTypes |= bit(msgType);
+            openKinds |= kind;
+            if (++openCount >= indexInterval) seal(end);
+        }
+
+        /** Closes the open block at the current end of the segment. */
+        void seal() {
+            seal(buf.position());
+        }
+
+        private void seal(int end) {
+            if (openCount == 0) return;
+            Block[] b = blocks;
+            int n = blockCount;
+            if (n == b.length) b = Arrays.copyOf(b, n * 2);
+            b[n] = new Block(openStart, end, openMin, openMax, openSessions, openTypes, openKinds);
+            blocks = b;
+            blockCount = n + 1;
+            openCount = 0;
+            openMin = Long.MAX_VALUE;
+            openMax = Long.MIN_VALUE;
+            openSessions = 0;
+            openTypes = 0;
+            openKinds = 0;
+        }
+
+        /**
+         * Appends matches to {@code out} in the requested order. Returns true once the limit is
+         * reached.
+         */
+        boolean scan(Filter f, int limit, boolean newestFirst, List<JournalRecord> out) {
+            int end = committed;
+            int n = blockCount;
+            Block[] b = blocks;
+
+            // ranges to visit: the candidate sealed blocks, then the unindexed tail
+            int[] ranges = new int[(n + 1) * 2];
+            int r = 0;
+            int tailStart = 0;
+            for (int i = 0; i < n; i++) {
+                Block blk = b[i];
+                tailStart = blk.end;
+                if (blk.start >= end || !f.mayMatch(blk)) continue;
+                ranges[r++] = blk.start;
+                ranges[r++] = Math.min(blk.end, end);
+            }
+            if (tailStart < end) {
+                ranges[r++] = tailStart;
+                ranges[r++] = end;
+            }
+
+            if (!newestFirst) {
+                for (int i = 0; i < r; i += 2) {
+                    for (int off = ranges[i]; off < ranges[i + 1]; off += 4 + buf.getInt(off)) {
+                        if (!f.matches(buf, off)) continue;
+                        out.add(JournalCodec.decode(buf, off));
+                        if (out.size() >= limit) return true;
+                    }
+                }
+                return false;
+            }
+
+            int[] hits = new int[64];
+            for (int i = r - 2; i >= 0; i -= 2) {
+                int h = 0;
+                for (int off = ranges[i]; off < ranges[i + 1]; off += 4 + buf.getInt(off)) {
+                    if (!f.matches(buf, off)) continue;
+                    if (h == hits.length) hits = Arrays.copyOf(hits, h * 2);
+                    hits[h++] = off;
+                }
+                while (h > 0) {
+                    out.add(JournalCodec.decode(buf, hits[--h]));
+                    if (out.size() >= limit) return true;
+                }
+            }
+            return false;
+        }
+
+        private static int hash(String s) {
+            return s == null ? 0 : s.hashCode();
+        }
+    }
+
+    private static final class Filter {
+        final long from;
+        final long to;
+        final int kinds;
+        final byte[][] sessions;
+        final long sessionMask;
+        final byte[][] msgTypes;
+        final long typeMask;
+
+        Filter(JournalQuery q) {
+            from = q.from;
+            to = q.to;
+            kinds = "in".equals(q.direction) ? JournalEntry.INBOUND
+                    : "out".equals(q.direction) ? JournalEntry.OUTBOUND
+                    : JournalEntry.INBOUND | JournalEntry.OUTBOUND;
+            sessions = bytes(q.sessions);
+            sessionMask = mask(q.sessions);
+            msgTypes = bytes(q.msgTypes);
+            typeMask = mask(q.msgTypes);
+        }
+
+        boolean mayMatch(Block b) {
+            return b.maxMillis >= from && b.minMillis <= to
+                    && (b.kinds & kinds) != 0
+                    && (sessions == null || (b.sessions & sessionMask) != 0)
+                    && (msgTypes == null || (b.msgTypes & typeMask) != 0);
+        }
+
+        boolean matches(ByteBuffer buf, int off) {
+            long millis = buf.getLong(off + JournalCodec.MILLIS);
+            if (millis < from || millis > to) return false;
+            if ((buf.get(off + JournalCodec.KIND) & kinds) == 0) return false;
+            int sessionOff = off + JournalCodec.SESSION;
+            int typeOff = sessionOff + 2 + buf.getShort(sessionOff);
+            if (msgTypes != null && !any(buf, typeOff, msgTypes)) return false;
+            if (sessions != null) {
+                int destOff = typeOff + 2 + buf.getShort(typeOff);
+                return any(buf, sessionOff, sessions) || any(buf, destOff, sessions);
+            }
+            return true;
+        }
+
+        private static boolean any(ByteBuffer buf, int off, byte[][] values) {
+            for (byte[] v : values) {
+                if (JournalCodec.shortStringEquals(buf, off, v)) return true;
+            }
+            return false;
+        }
+
+        private static byte[][] bytes(Set<String> values) {
+            if (values == null || values.isEmpty()) return null;
+            return values.stream().map(v -> v.getBytes(StandardCharsets.ISO_8859_1)).toArray(byte[][]::new);
+        }
+
+        private static long mask(Set<String> values) {
+            long m = 0;
+            if (values != null) {
+                for (String v : values) m |= bit(v.hashCode());
+            }
+            return m;
+        }
+    }
+}
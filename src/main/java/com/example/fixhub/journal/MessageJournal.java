@@ -0,0 +1,180 @@
+package com.example.fixhub.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import quickfix.SessionID;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Per-message audit trail. Producers claim a slot in a preallocated ring with one CAS, fill it in
+ * and publish it; a dedicated writer thread encodes the entries into the memory-mapped journal
+ * and, for a configurable sample of them, writes a line to the {@code fixhub.audit} logger.
+ * Lifecycle events keep going to the regular class loggers. A full ring drops the entry rather
+ * than block.
+ *
+ * <p>{@link #query} reads the journal segments directly and is safe to call from any thread.
+ */
+@Component
+public class MessageJournal {
+    private static final Logger logger = LoggerFactory.getLogger(MessageJournal.class);
+    private static final Logger audit = LoggerFactory.getLogger("fixhub.audit");
+
+    @Value("${fixhub.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fixhub.journal.dir:journal}")
+    private String dir;
+
+    @Value("${fixhub.journal.ring-size:65536}")
+    private int ringSize;
+
+    @Value("${fixhub.journal.audit-sample-every:0}")
+    private int auditSampleEvery;
+
+    @Value("${fixhub.journal.segment-mb:64}")
+    private int segmentMb;
+
+    @Value("${fixhub.journal.max-segments:16}")
+    private int maxSegments;
+
+    @Value("${fixhub.journal.index-interval:256}")
+    private int indexInterval;
+
+    private JournalEntry[] ring;
+    private int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private MappedJournal store;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        int size = Integer.highestOneBit(Math.max(ringSize, 2) - 1) << 1;
+        ring = new JournalEntry[size];
+        for (int i = 0; i < size; i++) ring[i] = new JournalEntry();
+        mask = size - 1;
+        store = new MappedJournal(Paths.get(dir), segmentMb * 1024L * 1024, maxSegments, indexInterval);
+        running = true;
+        writer = new Thread(this::drain, "fixhub-journal");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Message journal started in {} (ring={}, audit sample 1/{})", dir, size, auditSampleEvery);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) return;
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void inbound(SessionID session, String msgType, String raw, String route) {
+        publish(JournalEntry.INBOUND, session, msgType, raw, route, route != null);
+    }
+
+    public void outbound(String destination, SessionID source, String msgType, String raw, boolean sent) {
+        publish(JournalEntry.OUTBOUND, source, msgType, raw, destination, sent);
+    }
+
+    /**
+     * Records matching the query, oldest first unless {@link JournalQuery#newestFirst} is set.
+     * Entries still in the ring are not visible yet.
+     */
+    public List<JournalRecord> query(JournalQuery query) {
+        MappedJournal s = store;
+        return s == null ? Collections.emptyList() : s.query(query);
+    }
+
+    private void publish(byte kind, SessionID session, String msgType, String raw, String destination, boolean ok) {
+        if (ring == null) return;
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= ring.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        JournalEntry e = ring[(int) seq & mask];
+        e.kind = kind;
+        e.flags = ok ? JournalEntry.FLAG_OK : 0;
+        e.epochMillis = System.currentTimeMillis();
+        e.session = session.toString();
+        e.msgType = msgType;
+        e.destination = destination;
+        e.raw = raw;
+        e.published = seq;
+    }
+
+    private void drain() {
+        long next = consumed;
+        while (true) {
+            JournalEntry e = ring[(int) next & mask];
+            if (e.published != next) {
+                if (!running) break;
+                LockSupport.parkNanos(200_000);
+                continue;
+            }
+            try {
+                store.append(e);
+                written.increment();
+            } catch (IOException ex) {
+                logger.error("Failed to write journal entry", ex);
+            }
+            if (auditSampleEvery > 0 && next % auditSampleEvery == 0) logAudit(e);
+            e.clear();
+            consumed = ++next;
+        }
+        try {
+            store.close();
+        } catch (IOException ex) {
+            logger.warn("Failed to close journal", ex);
+        }
+    }
+
+    private void logAudit(JournalEntry e) {
+        if (e.kind == JournalEntry.INBOUND) {
+            audit.info("IN {} {} route={} {}", e.session, e.msgType, e.destination, e.raw);
+        } else {
+            audit.info("OUT {} {} from={} sent={}", e.destination, e.msgType, e.session, e.ok());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", ring != null);
+        m.put("written", written.sum());
+        m.put("dropped", dropped.sum());
+        m.put("backlog", claimed.get() - consumed);
+        if (store != null) {
+            m.put("segments", store.segmentCount());
+            m.put("bytes", store.bytes());
+        }
+        return m;
+    }
+}
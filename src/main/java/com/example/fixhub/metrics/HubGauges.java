@@ -0,0 +1,37 @@
+package com.example.fixhub.metrics;
+
+import com.example.fixhub.service.SessionRegistry;
+import com.example.fixhub.websocket.MessageStreamHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Point-in-time gauges, read only when the registry is scraped.
+ */
+@Component
+public class HubGauges implements MeterBinder {
+
+    private final SessionRegistry sessionRegistry;
+
+    @Autowired(required = false)
+    private MessageStreamHandler messageStreamHandler;
+
+    public HubGauges(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("fixhub.sessions.logged_on", sessionRegistry, r -> r.snapshot().size())
+                .description("FIX sessions currently logged on")
+                .register(registry);
+        if (messageStreamHandler != null) {
+            Gauge.builder("fixhub.websocket.clients", messageStreamHandler, MessageStreamHandler::getConnectedSessions)
+                    .description("Connected /ws/messages clients")
+                    .register(registry);
+        }
+    }
+}
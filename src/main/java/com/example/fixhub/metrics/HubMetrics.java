@@ -0,0 +1,119 @@
+package com.example.fixhub.metrics;
+
+import com.example.fixhub.config.RouteConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import quickfix.SessionID;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the message path. Tags are limited to session, route and stage, all bounded by the
+ * hub configuration. Counters are created once per key and cached, so recording on the hot path
+ * is a map lookup and an increment.
+ */
+@Component
+public class HubMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<SessionID, Counter> received = new ConcurrentHashMap<>();
+    private final Map<SessionID, Counter> sent = new ConcurrentHashMap<>();
+    private final Map<String, Counter> sendFailed = new ConcurrentHashMap<>();
+    // keyed by the route tag: rules are rebuilt on every reload and edit, and have no equals
+    private final Map<String, Counter> routed = new ConcurrentHashMap<>();
+    private final Counter unrouted;
+
+    private final Timer parse;
+    private final Timer route;
+    private final Timer send;
+    private final Timer broadcast;
+
+    public HubMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.unrouted = Counter.builder("fixhub.messages.unrouted")
+                .description("Inbound application messages that matched no route")
+                .register(registry);
+        this.parse = stageTimer("parse");
+        this.route = stageTimer("route");
+        this.send = stageTimer("send");
+        this.broadcast = stageTimer("broadcast");
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("fixhub.stage.latency")
+                .description("Time spent in each stage of the message path")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    public void received(SessionID session) {
+        Counter c = received.get(session);
+        if (c == null) c = received.computeIfAbsent(session, s -> sessionCounter("fixhub.messages.received", s));
+        c.increment();
+    }
+
+    public void sent(SessionID session) {
+        Counter c = sent.get(session);
+        if (c == null) c = sent.computeIfAbsent(session, s -> sessionCounter("fixhub.messages.sent", s));
+        c.increment();
+    }
+
+    public void sendFailed(String destination) {
+        Counter c = sendFailed.get(destination);
+        if (c == null) {
+            c = sendFailed.computeIfAbsent(destination, d -> Counter.builder("fixhub.messages.send.failed")
+                    .tag("destination", d)
+                    .register(registry));
+        }
+        c.increment();
+    }
+
+    public void routed(RouteConfig r) {
+        if (r == null) {
+            unrouted.increment();
+            return;
+        }
+        String label = r.label();
+        Counter c = routed.get(label);
+        if (c == null) {
+            c = routed.computeIfAbsent(label, k -> Counter.builder("fixhub.messages.routed")
+                    .tag("route", k)
+                    .register(registry));
+        }
+        c.increment();
+    }
+
+    public void sessionEvent(String event) {
+        registry.counter("fixhub.session.events", "event", event).increment();
+    }
+
+    public void recordParse(long nanos) {
+        parse.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRoute(long nanos) {
+        route.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSend(long nanos) {
+        send.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBroadcast(long nanos) {
+        broadcast.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter sessionCounter(String name, SessionID s) {
+        return Counter.builder(name).tag("session", s.toString()).register(registry);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.fixhub.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inbound and outbound counters of one session or route. Writers only add to striped adders and
+ * record into a latency {@link Recorder}, so they never wait on each other or on a reader. The
+ * once-a-second {@link #tick} and {@link #snapshot} synchronize with each other on the instance,
+ * not with writers.
+ */
+final class Traffic {
+    static final int MAX_MSG_TYPES = 64;
+    static final String OTHER_MSG_TYPES = "other";
+
+    private static final int[] WINDOWS = {1, 60, 300};
+    private static final String[] WINDOW_NAMES = {"1s", "1m", "5m"};
+
+    final Flow in = new Flow();
+    final Flow out = new Flow();
+    // sessions only: set from the registry's logon and logout events
+    volatile Boolean loggedOn;
+
+    synchronized void tick() {
+        in.tick();
+        out.tick();
+    }
+
+    synchronized Map<String, Object> snapshot() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        if (loggedOn != null) m.put("logged_on", loggedOn);
+        m.put("in", in.snapshot());
+        m.put("out", out.snapshot());
+        return m;
+    }
+
+    /** One direction: message and byte totals, their per-second history, MsgTypes and latency. */
+    static final class Flow {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final Map<String, LongAdder> msgTypes = new ConcurrentHashMap<>();
+        private final Recorder latency = new Recorder(3);
+
+        // cumulative totals at each tick, one slot per second of the longest window plus one;
+        // slot 0 is the zero baseline, so traffic before the first tick counts in the first second
+        private final long[] messageHistory = new long[WINDOWS[WINDOWS.length - 1] + 1];
+        private final long[] byteHistory = new long[messageHistory.length];
+        private long ticks = 1;
+        private Histogram interval;
+        private final Histogram latencyTotal = new Histogram(3);
+
+        void add(String msgType, int byteCount) {
+            messages.increment();
+            if (byteCount > 0) bytes.add(byteCount);
+            if (msgType != null) msgType(msgType).increment();
+        }
+
+        void latency(long nanos) {
+            if (nanos > 0) latency.recordValue(nanos);
+        }
+
+        private LongAdder msgType(String t) {
+            LongAdder a = msgTypes.get(t);
+            if (a != null) return a;
+            // MsgTypes come off the wire, so the map is capped; the rest are counted together
+            return msgTypes.computeIfAbsent(msgTypes.size() < MAX_MSG_TYPES ? t : OTHER_MSG_TYPES, k -> new LongAdder());
+        }
+
+        private void tick() {
+            int i = (int) (ticks++ % messageHistory.length);
+            messageHistory[i] = messages.sum();
+            byteHistory[i] = bytes.sum();
+            drainLatency();
+        }
+
+        private void drainLatency() {
+            interval = latency.getIntervalHistogram(interval);
+            latencyTotal.add(interval);
+        }
+
+        private Map<String, Object> snapshot() {
+            drainLatency();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("messages", messages.sum());
+            m.put("bytes", bytes.sum());
+            m.put("rate", rates(messageHistory));
+            m.put("byte_rate", rates(byteHistory));
+            Map<String, Long> types = new TreeMap<>();
+            msgTypes.forEach((k, v) -> types.put(k, v.sum()));
+            m.put("msg_types", types);
+            if (latencyTotal.getTotalCount() > 0) m.put("latency_us", latency());
+            return m;
+        }
+
+        /** Per-second averages over each window, or over the seconds so far if fewer. */
+        private Map<String, Object> rates(long[] history) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            long newest = history[(int) ((ticks - 1) % history.length)];
+            for (int w = 0; w < WINDOWS.length; w++) {
+                long span = Math.min(WINDOWS[w], ticks - 1);
+                long oldest = history[(int) ((ticks - 1 - span) % history.length)];
+                m.put(WINDOW_NAMES[w], span == 0 ? 0.0 : Math.round((newest - oldest) * 10.0 / span) / 10.0);
+            }
+            return m;
+        }
+
+        private Map<String, Object> latency() {
+            Histogram h = latencyTotal;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", h.getTotalCount());
+            m.put("mean", Math.round(h.getMean() / 100.0) / 10.0);
+            m.put("p50", micros(h.getValueAtPercentile(50)));
+            m.put("p90", micros(h.getValueAtPercentile(90)));
+            m.put("p99", micros(h.getValueAtPercentile(99)));
+            m.put("p99_9", micros(h.getValueAtPercentile(99.9)));
+            m.put("max", micros(h.getMaxValue()));
+            return m;
+        }
+
+        private static double micros(long nanos) {
+            return Math.round(nanos / 100.0) / 10.0;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.fixhub.metrics;
+
+import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.service.SessionRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import quickfix.Session;
+import quickfix.SessionID;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory throughput and latency statistics per session and per route, for the REST API.
+ * Unlike {@link HubMetrics}, which feeds the registry, this keeps rates over the last second,
+ * minute and five minutes, byte counts, a MsgType breakdown and the latency distribution from
+ * the pipeline taking a message in to the outgoing session's send returning.
+ *
+ * <p>Recording is lock-free: a map lookup, then striped adders and an HdrHistogram recorder. A
+ * daemon thread samples the totals once a second for the rolling rates. Snapshots are taken
+ * while writers keep recording, so the fields of one snapshot may be a few messages apart.
+ *
+ * <p>Sessions are added on logon, from the session registry's events, so a logged-on session
+ * is listed before its first message, and are marked when they log out.
+ *
+ * <p>Byte counts are the length of the message as rendered by QuickFIX/J, which is its size on
+ * the wire in the default ISO-8859-1 charset. Outbound bytes are the inbound message's; the
+ * header each outgoing session writes is not counted.
+ */
+@Component
+public class TrafficStats implements SessionRegistry.Listener {
+
+    private final Map<SessionID, Traffic> sessions = new ConcurrentHashMap<>();
+    // by from->to label, so rules with the same label, and a rule replaced by a reload or an edit
+    // of the routes, share one entry and no rule object is kept
+    private final Map<String, Traffic> routes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sampler;
+
+    @Autowired(required = false)
+    private SessionRegistry sessionRegistry;
+
+    @PostConstruct
+    public void start() {
+        if (sessionRegistry != null) {
+            sessionRegistry.addListener(this);
+            for (SessionID id : sessionRegistry.snapshot().sessionIds()) session(id).loggedOn = true;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fixhub-traffic-stats");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sessionRegistry != null) sessionRegistry.removeListener(this);
+        if (sampler != null) sampler.shutdownNow();
+    }
+
+    @Override
+    public void onLogon(Session session, SessionRegistry.Snapshot snapshot) {
+        session(session.getSessionID()).loggedOn = true;
+    }
+
+    @Override
+    public void onLogout(SessionID id, SessionRegistry.Snapshot snapshot) {
+        session(id).loggedOn = false;
+    }
+
+    /** A message taken in from {@code session}. */
+    public void received(SessionID session, String msgType, int bytes) {
+        session(session).in.add(msgType, bytes);
+    }
+
+    /** A message that matched {@code route}. */
+    public void routed(RouteConfig route, String msgType, int bytes) {
+        route(route).in.add(msgType, bytes);
+    }
+
+    /**
+     * What the send needs to know about a routed message, resolved once on the routing thread
+     * and shared by every destination of a fan-out, each of which records its own latency sample.
+     * Out and latency of a multicast message are counted on its first matching rule.
+     */
+    public Origin origin(SessionID source, RouteConfig route, String msgType, int bytes, long receivedNanos) {
+        return new Origin(session(source), route(route), msgType, bytes, receivedNanos);
+    }
+
+    /**
+     * A message written by {@code session}. Without an origin, as for messages sent outside the
+     * pipeline, only the message is counted.
+     */
+    public void sent(SessionID session, Origin origin) {
+        Traffic t = session(session);
+        if (origin == null) {
+            t.out.add(null, 0);
+            return;
+        }
+        long latency = System.nanoTime() - origin.receivedNanos;
+        t.out.add(origin.msgType, origin.bytes);
+        t.out.latency(latency);
+        origin.route.out.add(origin.msgType, origin.bytes);
+        origin.route.out.latency(latency);
+        origin.source.in.latency(latency);
+    }
+
+    /** The statistics of a session by its id, or null if it never logged on or had traffic. */
+    public Map<String, Object> session(String sessionId) {
+        for (Map.Entry<SessionID, Traffic> e : sessions.entrySet()) {
+            if (e.getKey().toString().equals(sessionId)) return e.getValue().snapshot();
+        }
+        return null;
+    }
+
+    public Map<String, Object> sessions() {
+        Map<String, Object> m = new TreeMap<>();
+        sessions.forEach((k, v) -> m.put(k.toString(), v.snapshot()));
+        return m;
+    }
+
+    public Map<String, Object> routes() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        routes.forEach((k, v) -> m.put(k, v.snapshot()));
+        return m;
+    }
+
+    private Traffic session(SessionID session) {
+        Traffic t = sessions.get(session);
+        return t != null ? t : sessions.computeIfAbsent(session, k -> new Traffic());
+    }
+
+    private Traffic route(RouteConfig route) {
+        String label = route.label();
+        Traffic t = routes.get(label);
+        return t != null ? t : routes.computeIfAbsent(label, k -> new Traffic());
+    }
+
+    private void tick() {
+        for (Traffic t : sessions.values()) t.tick();
+        for (Traffic t : routes.values()) t.tick();
+    }
+
+    /** The source side of a routed message; see {@link #origin}. */
+    public static final class Origin {
+        private final Traffic source;
+        private final Traffic route;
+        private final String msgType;
+        private final int bytes;
+        private final long receivedNanos;
+
+        private Origin(Traffic source, Traffic route, String msgType, int bytes, long receivedNanos) {
+            this.source = source;
+            this.route = route;
+            this.msgType = msgType;
+            this.bytes = bytes;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.fixhub.model;
 
+import com.example.fixhub.config.StoreConfig;
+
 public class Connection {
     private String id;
     private String name;
     private String host;
     private int port;
     private String settingsFile;
+    private StoreConfig store;
 
     public Connection() {}
 
@@ -31,4 +34,7 @@ public class Connection {
 
     public String getSettingsFile() { return settingsFile; }
     public void setSettingsFile(String settingsFile) { this.settingsFile = settingsFile; }
+
+    public StoreConfig getStore() { return store; }
+    public void setStore(StoreConfig store) { this.store = store; }
 }
@@ -0,0 +1,7 @@
+package com.example.fixhub.pipeline;
+
+public enum BackpressurePolicy {
+    BLOCK,       // caller waits for space; pushes back onto the FIX session
+    DROP_OLDEST, // evict the oldest queued item to make room
+    REJECT       // refuse the new item
+}
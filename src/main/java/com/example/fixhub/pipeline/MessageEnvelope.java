@@ -0,0 +1,40 @@
+package com.example.fixhub.pipeline;
+
+import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.metrics.TrafficStats;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.util.List;
+
+/**
+ * A message travelling through the pipeline. Stages are single-threaded per partition, so the
+ * mutable fields are only ever touched by one thread at a time.
+ */
+public class MessageEnvelope {
+    public final SessionID source;
+    public final Message message;
+    public final long receivedNanos;
+
+    long enqueuedNanos;
+    boolean inline; // processed on the submitting thread, not handed between stages
+    public RouteConfig route;
+    public List<RouteConfig> routes; // set as well as route when a multicast rule matched
+    public String msgType;
+    public TrafficStats.Origin origin;
+    private String raw;
+
+    public MessageEnvelope(SessionID source, Message message) {
+        this.source = source;
+        this.message = message;
+        this.receivedNanos = System.nanoTime();
+    }
+
+    /**
+     * The message in tag=value form, rendered once and shared by every consumer.
+     */
+    public String raw() {
+        if (raw == null) raw = message.toString();
+        return raw;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.fixhub.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * One pipeline stage: a fixed set of bounded queues, each drained by its own thread. Items with
+ * the same partition key always land on the same queue, which keeps per-session ordering while
+ * different sessions are processed in parallel.
+ *
+ * <p>An item the stage gives up on is never lost silently: {@link #submit} returns false for an
+ * item it refuses, and an item pushed out under {@link BackpressurePolicy#DROP_OLDEST} is handed
+ * to the stage's drop handler on the submitting thread.
+ */
+public class PartitionedStage {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedStage.class);
+
+    private final String name;
+    private final BackpressurePolicy policy;
+    private final Consumer<MessageEnvelope> handler;
+    private final Consumer<MessageEnvelope> onDrop;
+    private final BlockingQueue<MessageEnvelope>[] queues;
+    private final Thread[] workers;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    private volatile boolean running;
+
+    public PartitionedStage(String name, int partitions, int capacity, BackpressurePolicy policy,
+                            Consumer<MessageEnvelope> handler) {
+        this(name, partitions, capacity, policy, handler, item -> { });
+    }
+
+    @SuppressWarnings("unchecked")
+    public PartitionedStage(String name, int partitions, int capacity, BackpressurePolicy policy,
+                            Consumer<MessageEnvelope> handler, Consumer<MessageEnvelope> onDrop) {
+        if (partitions < 1) throw new IllegalArgumentException("partitions must be >= 1");
+        this.name = name;
+        this.policy = policy;
+        this.handler = handler;
+        this.onDrop = onDrop;
+        this.queues = new BlockingQueue[partitions];
+        this.workers = new Thread[partitions];
+        for (int i = 0; i < partitions; i++) {
+            queues[i] = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            BlockingQueue<MessageEnvelope> q = queues[i];
+            Thread t = new Thread(() -> drain(q), "fixhub-" + name + "-" + i);
+            t.setDaemon(true);
+            workers[i] = t;
+            t.start();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        for (Thread t : workers) {
+            if (t != null) t.interrupt();
+        }
+    }
+
+    /**
+     * Enqueue an item on the partition for the given key. Returns false if the item was not accepted.
+     */
+    public boolean submit(int key, MessageEnvelope item) {
+        BlockingQueue<MessageEnvelope> q = queues[Math.floorMod(key, queues.length)];
+        item.enqueuedNanos = System.nanoTime();
+        switch (policy) {
+            case BLOCK:
+                try {
+                    q.put(item);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.increment();
+                    return false;
+                }
+            case DROP_OLDEST:
+                while (!q.offer(item)) {
+                    MessageEnvelope oldest = q.poll();
+                    if (oldest == null) continue;
+                    dropped.increment();
+                    try {
+                        onDrop.accept(oldest);
+                    } catch (RuntimeException e) {
+                        logger.warn("Stage {} drop handler failed for message from {}", name, oldest.source, e);
+                    }
+                }
+                return true;
+            default:
+                if (q.offer(item)) return true;
+                rejected.increment();
+                return false;
+        }
+    }
+
+    private void drain(BlockingQueue<MessageEnvelope> q) {
+        while (running) {
+            MessageEnvelope item;
+            try {
+                item = q.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                handler.accept(item);
+            } catch (Exception e) {
+                failed.increment();
+                logger.error("Stage {} failed to process message from {}", name, item.source, e);
+            }
+            long latency = System.nanoTime() - item.enqueuedNanos;
+            latencyNanos.add(latency);
+            maxLatencyNanos.accumulate(latency);
+            processed.increment();
+        }
+    }
+
+    public int depth() {
+        int d = 0;
+        for (BlockingQueue<MessageEnvelope> q : queues) d += q.size();
+        return d;
+    }
+
+    public Map<String, Object> stats() {
+        long n = processed.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("partitions", queues.length);
+        m.put("policy", policy);
+        m.put("depth", depth());
+        m.put("processed", n);
+        m.put("dropped", dropped.sum());
+        m.put("rejected", rejected.sum());
+        m.put("failed", failed.sum());
+        m.put("avgLatencyMicros", n == 0 ? 0 : latencyNanos.sum() / n / 1000);
+        m.put("maxLatencyMicros", maxLatencyNanos.get() / 1000);
+        return m;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.fixhub.pipeline;
+
+import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.fix.PassthroughMessage;
+import com.example.fixhub.journal.MessageJournal;
+import com.example.fixhub.metrics.HubMetrics;
+import com.example.fixhub.metrics.TrafficStats;
+import com.example.fixhub.service.OutgoingConnector;
+import com.example.fixhub.service.RoutingService;
+import com.example.fixhub.websocket.FIXMessageEvent;
+import com.example.fixhub.websocket.MessageStreamHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves inbound application messages off the QuickFIX/J session thread through three stages:
+ * ingest (WebSocket publication), route (rule matching) and send (hand-off to the outgoing
+ * session's send queue). Every stage partitions by source session so messages from one session
+ * stay in order.
+ *
+ * <p>{@link #process} runs the same three steps on the calling thread instead, for callers that
+ * already give each session its own serial worker, such as the virtual-thread session lanes.
+ */
+@Component
+public class RoutingPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingPipeline.class);
+
+    private final RoutingService routingService;
+    private final OutgoingConnector outgoingConnector;
+    private final HubMetrics metrics;
+    private final MessageJournal journal;
+    private final TrafficStats traffic;
+
+    @Autowired(required = false)
+    private MessageStreamHandler messageStreamHandler;
+
+    @Value("${fixhub.pipeline.partitions:0}")
+    private int partitions;
+
+    @Value("${fixhub.pipeline.queue-capacity:8192}")
+    private int queueCapacity;
+
+    @Value("${fixhub.pipeline.backpressure:BLOCK}")
+    private BackpressurePolicy backpressure;
+
+    private PartitionedStage ingest;
+    private PartitionedStage route;
+    private PartitionedStage send;
+
+    private final LongAdder inline = new LongAdder();
+    private final LongAdder fanOuts = new LongAdder();
+    private final LongAdder fanOutTargets = new LongAdder();
+    private final LongAdder fanOutFailed = new LongAdder();
+
+    public RoutingPipeline(RoutingService routingService, OutgoingConnector outgoingConnector, HubMetrics metrics,
+                           MessageJournal journal, TrafficStats traffic) {
+        this.routingService = routingService;
+        this.outgoingConnector = outgoingConnector;
+        this.metrics = metrics;
+        this.journal = journal;
+        this.traffic = traffic;
+    }
+
+    @PostConstruct
+    public void start() {
+        int n = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        send = new PartitionedStage("send", n, queueCapacity, backpressure, this::send, env -> lost("send", env));
+        route = new PartitionedStage("route", n, queueCapacity, backpressure, this::route, env -> lost("route", env));
+        ingest = new PartitionedStage("ingest", n, queueCapacity, backpressure, this::ingest, env -> lost("ingest", env));
+        send.start();
+        route.start();
+        ingest.start();
+        logger.info("Routing pipeline started with {} partitions per stage (capacity={}, backpressure={})",
+                n, queueCapacity, backpressure);
+    }
+
+    @PreDestroy
+    public void stop() {
+        ingest.stop();
+        route.stop();
+        send.stop();
+    }
+
+    /**
+     * Entry point from the FIX session thread. Returns false if the ingest queue refused the message.
+     */
+    public boolean submit(Message message, SessionID source) {
+        MessageEnvelope env = new MessageEnvelope(source, message);
+        boolean accepted = ingest.submit(source.hashCode(), env);
+        if (!accepted) lost("ingest", env);
+        return accepted;
+    }
+
+    /**
+     * Ingests, routes and hands off the message on the calling thread, skipping the stage queues.
+     * The caller must not run two messages of one session at once.
+     */
+    public void process(Message message, SessionID source) {
+        MessageEnvelope env = new MessageEnvelope(source, message);
+        env.inline = true;
+        ingest(env);
+        inline.increment();
+    }
+
+    private void ingest(MessageEnvelope env) {
+        env.msgType = msgType(env.message);
+        // with no stream clients nothing is built here. Otherwise the event takes the rendered
+        // message, which routing needs anyway, and must do so before the hand-off because the
+        // send stage mutates the message header; JSON is only written if a subscription wants it
+        FIXMessageEvent event = messageStreamHandler != null && messageStreamHandler.getConnectedSessions() > 0
+                ? toEvent(env) : null;
+        // hand off to routing first so a slow WebSocket publish does not delay delivery
+        if (env.inline) route(env);
+        else if (!route.submit(env.source.hashCode(), env)) lost("route", env);
+        if (event != null) messageStreamHandler.broadcastMessage(event);
+    }
+
+    private void route(MessageEnvelope env) {
+        long start = System.nanoTime();
+        String raw = env.raw();
+        long rendered = System.nanoTime();
+        // one lookup on one snapshot of the rules, so a reload cannot slip in between the
+        // primary rule and the rest of a multicast match
+        List<RouteConfig> routes = routingService.matchAll(raw, env.source);
+        RouteConfig r = routes.isEmpty() ? null : routes.get(0);
+        metrics.recordParse(rendered - start);
+        metrics.recordRoute(System.nanoTime() - rendered);
+        journal.inbound(env.source, env.msgType, raw, r == null ? null : r.to);
+        traffic.received(env.source, env.msgType, raw.length());
+        if (r == null) {
+            metrics.routed(null);
+            return;
+        }
+        env.route = r;
+        if (r.multicast) {
+            env.routes = routes;
+            for (RouteConfig m : routes) {
+                metrics.routed(m);
+                traffic.routed(m, env.msgType, raw.length());
+            }
+        } else {
+            metrics.routed(r);
+            traffic.routed(r, env.msgType, raw.length());
+        }
+        env.origin = traffic.origin(env.source, r, env.msgType, raw.length(), env.receivedNanos);
+        if (env.inline) send(env);
+        else if (!send.submit(env.source.hashCode(), env)) lost("send", env);
+    }
+
+    private void send(MessageEnvelope env) {
+        if (env.routes == null && !env.route.fansOut()) {
+            Message out = env.route.passthrough ? new PassthroughMessage(env.message, env.raw()) : env.message;
+            // true once the message is on the destination's send queue; the drain does the socket write
+            boolean sent = outgoingConnector.sendTo(env.route.to, out, env.origin);
+            journal.outbound(env.route.to, env.source, env.msgType, env.raw(), sent);
+            return;
+        }
+        fanOut(env, RoutingService.destinations(env.routes != null ? env.routes : List.of(env.route)));
+    }
+
+    /**
+     * Sends to several destinations. The body is taken from the rendered message once and
+     * shared by every target, so only the headers are encoded per target; without passthrough
+     * the rendered message is QuickFIX/J's own encoding, the same body each session would write.
+     */
+    private void fanOut(MessageEnvelope env, List<String> destinations) {
+        Map<String, Boolean> results = outgoingConnector.sendToAll(destinations,
+                new PassthroughMessage(env.message, env.raw()), env.origin);
+        int failed = 0;
+        for (Map.Entry<String, Boolean> e : results.entrySet()) {
+            journal.outbound(e.getKey(), env.source, env.msgType, env.raw(), e.getValue());
+            if (!e.getValue()) failed++;
+        }
+        fanOuts.increment();
+        fanOutTargets.add(results.size());
+        if (failed > 0) {
+            fanOutFailed.add(failed);
+            logger.debug("Fan-out from {} reached {} of {} destinations: {}", env.source,
+                    results.size() - failed, results.size(), results);
+        }
+    }
+
+    /**
+     * A message QuickFIX/J has accepted and sequenced that a full stage queue refused or pushed
+     * out. It is logged and journaled as failed: unrouted before the route stage has matched it,
+     * otherwise as a failed send to each of its destinations.
+     */
+    private void lost(String stage, MessageEnvelope env) {
+        if (env.msgType == null) env.msgType = msgType(env.message);
+        logger.warn("Pipeline {} queue full; message {} from {} lost", stage, env.msgType, env.source);
+        if (env.route == null) {
+            journal.inbound(env.source, env.msgType, env.raw(), null);
+            return;
+        }
+        List<String> destinations = env.routes != null
+                ? RoutingService.destinations(env.routes) : env.route.destinations();
+        for (String d : destinations) journal.outbound(d, env.source, env.msgType, env.raw(), false);
+    }
+
+    private static String msgType(Message message) {
+        try {
+            return message.getHeader().getString(35);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private FIXMessageEvent toEvent(MessageEnvelope env) {
+        if (env.msgType == null) {
+            logger.debug("Message from {} has no MsgType; not streamed", env.source);
+            return null;
+        }
+        return new FIXMessageEvent(
+            "incoming",
+            env.source.toString(),
+            env.source.getSenderCompID(),
+            env.source.getTargetCompID(),
+            env.msgType,
+            env.raw(),
+            "FROM_CLIENT"
+        );
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put(ingest.name(), ingest.stats());
+        m.put(route.name(), route.stats());
+        m.put(send.name(), send.stats());
+        m.put("inline", inline.sum());
+        Map<String, Object> f = new LinkedHashMap<>();
+        f.put("messages", fanOuts.sum());
+        f.put("targets", fanOutTargets.sum());
+        f.put("failed_targets", fanOutFailed.sum());
+        m.put("fan_out", f);
+        m.put("journal", journal.stats());
+        return m;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.fixhub.service;
+
+/**
+ * How a destination with several logged-on sessions picks one per message.
+ */
+public enum Balance {
+    ROUND_ROBIN,
+    /** The session with the fewest messages being written, in flight in the hub or queued on its socket. */
+    LEAST_QUEUE
+}
@@ -5,51 +5,86 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.beans.factory.annotation.Autowired;
 import quickfix.*;
-import com.example.fixhub.websocket.MessageStreamHandler;
-import com.example.fixhub.websocket.FIXMessageEvent;
+import com.example.fixhub.config.HubConfig;
+import com.example.fixhub.config.IncomingConfig;
+import com.example.fixhub.metrics.HubMetrics;
+import com.example.fixhub.pipeline.RoutingPipeline;
+import com.example.fixhub.store.MessageStoreProvider;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 @Service
 public class FixEngineService {
 
     private static final Logger logger = LoggerFactory.getLogger(FixEngineService.class);
 
-    private final Map<String, SocketAcceptor> acceptors = new HashMap<>();
+    // how long a removed shared entry's sessions get to finish their logout before they are dropped
+    private static final long LOGOUT_WAIT_MILLIS = 2000;
+
+    private final Map<String, Acceptor> acceptors = new HashMap<>();
+    // incoming entries from the hub config that are running: key -> definition
+    private final Map<String, String> incoming = new HashMap<>();
 
     @Value("${fixhub.config-path:conf/fixhub.yml}")
     private String configPath;
 
+    // per-entry: an acceptor per incoming entry and connection; shared: one acceptor for all of them
+    @Value("${fixhub.acceptor.mode:per-entry}")
+    private String acceptorMode;
+
+    private final SharedAcceptor sharedAcceptor;
+    private final InitiatorEngine initiatorEngine;
+
     private final Object lock = new Object();
 
     private final RoutingService routingService;
     private final SessionRegistry sessionRegistry;
-    
-    @Autowired(required = false)
-    private MessageStreamHandler messageStreamHandler;
+    private final RoutingPipeline routingPipeline;
+    private final HubMetrics metrics;
+    private final MessageStoreProvider storeProvider;
+    private final SessionDispatcher dispatcher;
 
     @PostConstruct
     public void init() {
         start();
     }
 
-    public FixEngineService(RoutingService routingService, SessionRegistry sessionRegistry) {
+    public FixEngineService(RoutingService routingService, SessionRegistry sessionRegistry, RoutingPipeline routingPipeline,
+                            HubMetrics metrics, MessageStoreProvider storeProvider, SessionDispatcher dispatcher) {
         this.routingService = routingService;
         this.sessionRegistry = sessionRegistry;
+        this.routingPipeline = routingPipeline;
+        this.metrics = metrics;
+        this.storeProvider = storeProvider;
+        this.dispatcher = dispatcher;
+        FixApplication application = new FixApplication(sessionRegistry, routingPipeline, metrics, dispatcher);
+        this.sharedAcceptor = new SharedAcceptor(application);
+        this.initiatorEngine = new InitiatorEngine(application, storeProvider);
+    }
+
+    private boolean shared() {
+        return "shared".equalsIgnoreCase(acceptorMode);
     }
 
     public void start() {
         synchronized (lock) {
-            if (!acceptors.isEmpty()) {
+            if (!acceptors.isEmpty() || sharedAcceptor.isRunning()) {
                 logger.info("QuickFIX/J acceptors already running");
                 return;
             }
@@ -60,49 +95,29 @@ public class FixEngineService {
                 return;
             }
 
-            com.example.fixhub.config.HubConfig hubCfg = new com.example.fixhub.config.HubConfig();
-            try (InputStream in = new FileInputStream(hubFile)) {
-                com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper(new com.fasterxml.jackson.dataformat.yaml.YAMLFactory());
-                hubCfg = mapper.readValue(in, com.example.fixhub.config.HubConfig.class);
+            HubConfig hubCfg;
+            try {
+                hubCfg = RoutingService.parse(hubFile);
             } catch (IOException e) {
                 logger.error("Failed to load hub config from {}", configPath, e);
                 return;
             }
 
+            initiatorEngine.start(hubCfg.outgoing, dispatcher.threadedAcceptor());
+
             if (hubCfg.incoming == null || hubCfg.incoming.isEmpty()) {
                 logger.warn("No incoming definitions in hub config; skipping acceptor start");
                 return;
             }
 
-            for (com.example.fixhub.config.IncomingConfig ic : hubCfg.incoming) {
-                String settingsPath = ic.settingsFile == null || ic.settingsFile.isBlank() ? "conf/quickfixj.cfg" : ic.settingsFile;
-                File settingsFile = new File(settingsPath);
-                if (!settingsFile.exists()) {
-                    logger.warn("Settings file {} for incoming '{}' not found; skipping", settingsPath, ic.name);
-                    continue;
-                }
-
-                try (InputStream sin = new FileInputStream(settingsFile)) {
-                    SessionSettings settings = new SessionSettings(sin);
-                    MessageStoreFactory storeFactory = new FileStoreFactory(settings);
-                    LogFactory logFactory = new SLF4JLogFactory(settings);
-                    MessageFactory messageFactory = new DefaultMessageFactory();
-                    Application application = new FixApplication(routingService, sessionRegistry, messageStreamHandler);
-
-                    SocketAcceptor acc = new SocketAcceptor(application, storeFactory, settings, logFactory, messageFactory);
-                    acc.start();
-                    acceptors.put(ic.name != null ? ic.name : settingsPath, acc);
-                    logger.info("QuickFIX/J acceptor started for incoming '{}' (settings={})", ic.name, settingsPath);
-                } catch (ConfigError | IOException e) {
-                    logger.error("Failed to start QuickFIX/J acceptor for {}", settingsPath, e);
-                }
-            }
+            for (IncomingConfig ic : hubCfg.incoming) startIncoming(ic);
+            if (shared()) syncShared();
         }
     }
 
     public void stop() {
         synchronized (lock) {
-            for (Map.Entry<String, SocketAcceptor> e : acceptors.entrySet()) {
+            for (Map.Entry<String, Acceptor> e : acceptors.entrySet()) {
                 try {
                     e.getValue().stop();
                     logger.info("QuickFIX/J acceptor stopped for {}", e.getKey());
@@ -111,14 +126,166 @@ public class FixEngineService {
                 }
             }
             acceptors.clear();
+            incoming.clear();
+            sharedAcceptor.clear();
+            initiatorEngine.stop();
         }
     }
 
-    public void reloadConfig(File file) {
+    /**
+     * Applies a changed hub config in place. Routes and outgoing policies are published by the
+     * routing service in one swap; of the incoming entries and initiators, only those whose
+     * definition was added, removed or changed are started or stopped, so sessions of the other
+     * counterparties stay logged on. An invalid file leaves everything as it was and returns false.
+     */
+    public boolean reloadConfig(File file) {
         logger.info("Reload config requested: {}", file.getAbsolutePath());
-        // For now, restart the acceptor to pick up settings changes
-        stop();
-        start();
+        HubConfig next = routingService.load(file);
+        if (next == null) return false;
+
+        synchronized (lock) {
+            Map<String, IncomingConfig> wanted = new LinkedHashMap<>();
+            if (next.incoming != null) {
+                for (IncomingConfig ic : next.incoming) wanted.put(key(ic), ic);
+            }
+
+            int stopped = 0;
+            for (Iterator<Map.Entry<String, String>> it = incoming.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, String> e = it.next();
+                IncomingConfig ic = wanted.get(e.getKey());
+                if (ic != null && e.getValue().equals(definition(ic))) continue;
+                it.remove();
+                stopEntry(e.getKey());
+                stopped++;
+            }
+            int started = 0;
+            for (IncomingConfig ic : wanted.values()) {
+                if (!incoming.containsKey(key(ic)) && startIncoming(ic)) started++;
+            }
+            if (shared()) syncShared();
+
+            initiatorEngine.reload(next.outgoing, dispatcher.threadedAcceptor());
+            logger.info("Hub config reloaded: {} incoming entries stopped, {} started, {} unchanged",
+                    stopped, started, incoming.size() - started);
+        }
+        return true;
+    }
+
+    private static String key(IncomingConfig ic) {
+        return ic.name != null ? ic.name : settingsPath(ic);
+    }
+
+    private static String settingsPath(IncomingConfig ic) {
+        return ic.settingsFile == null || ic.settingsFile.isBlank() ? "conf/quickfixj.cfg" : ic.settingsFile;
+    }
+
+    /** What an entry's sessions are built from, including the settings file's content. */
+    private static String definition(IncomingConfig ic) {
+        String path = settingsPath(ic);
+        long crc;
+        try {
+            CRC32 c = new CRC32();
+            c.update(Files.readAllBytes(new File(path).toPath()));
+            crc = c.getValue();
+        } catch (IOException e) {
+            crc = -1;
+        }
+        return ic.port + "|" + ic.fixVersion + "|" + path + "@" + crc + "|" + ic.store;
+    }
+
+    /**
+     * Starts the acceptor of an incoming entry, or in shared mode adds its sessions to the
+     * shared acceptor; the caller then runs {@link #syncShared}. Caller holds the lock.
+     */
+    private boolean startIncoming(IncomingConfig ic) {
+        String settingsPath = settingsPath(ic);
+        File settingsFile = new File(settingsPath);
+        if (!settingsFile.exists()) {
+            logger.warn("Settings file {} for incoming '{}' not found; skipping", settingsPath, ic.name);
+            return false;
+        }
+
+        String key = key(ic);
+        try (InputStream sin = new FileInputStream(settingsFile)) {
+            SessionSettings settings = new SessionSettings(sin);
+            MessageStoreFactory storeFactory = storeProvider.factory(ic.store, settings);
+            if (shared()) {
+                if (!sharedAcceptor.add(key, settings, storeFactory)) return false;
+            } else {
+                LogFactory logFactory = new SLF4JLogFactory(settings);
+                MessageFactory messageFactory = new DefaultMessageFactory();
+                Application application = new FixApplication(sessionRegistry, routingPipeline, metrics, dispatcher);
+
+                Acceptor acc = newAcceptor(application, storeFactory, settings, logFactory, messageFactory);
+                acc.start();
+                acceptors.put(key, acc);
+                logger.info("QuickFIX/J acceptor started for incoming '{}' (settings={}, store={})", ic.name, settingsPath, ic.store == null ? "file" : ic.store);
+            }
+            incoming.put(key, definition(ic));
+            return true;
+        } catch (ConfigError | FieldConvertError | IOException e) {
+            logger.error("Failed to start QuickFIX/J acceptor for {}", settingsPath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Starts the shared acceptor if it is not running yet. A running one is never restarted for
+     * a new entry, as that would drop every session; entries on ports it does not listen on are
+     * refused by {@link SharedAcceptor#add}.
+     */
+    private void syncShared() {
+        try {
+            if (!sharedAcceptor.isRunning()) sharedAcceptor.start();
+        } catch (ConfigError e) {
+            logger.error("Failed to start shared QuickFIX/J acceptor", e);
+        }
+    }
+
+    private void stopEntry(String key) {
+        if (shared()) {
+            List<SessionID> leaving = sharedAcceptor.remove(key);
+            if (leaving != null) dropAfterLogout(leaving);
+            return;
+        }
+        Acceptor acc = acceptors.remove(key);
+        if (acc == null) return;
+        try {
+            acc.stop();
+            logger.info("QuickFIX/J acceptor stopped for {}", key);
+        } catch (Exception ex) {
+            logger.warn("Error stopping acceptor {}", key, ex);
+        }
+    }
+
+    /**
+     * Drops sessions of a removed shared entry from the acceptor once the registry has seen them
+     * all log out, or after {@link #LOGOUT_WAIT_MILLIS}. Nothing waits here: the lock is free
+     * while the counterparties answer, and entries removed together log out in parallel. The drop
+     * runs off the session threads, since it takes the lock.
+     */
+    private void dropAfterLogout(List<SessionID> leaving) {
+        if (leaving.isEmpty()) return;
+        Set<SessionID> pending = ConcurrentHashMap.newKeySet();
+        pending.addAll(leaving);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        SessionRegistry.Listener listener = new SessionRegistry.Listener() {
+            @Override
+            public void onLogout(SessionID id, SessionRegistry.Snapshot snapshot) {
+                if (pending.remove(id) && pending.isEmpty()) done.complete(null);
+            }
+        };
+        sessionRegistry.addListener(listener);
+        // a logout that completed before the listener was added
+        pending.removeIf(id -> !sessionRegistry.snapshot().contains(id));
+        if (pending.isEmpty()) done.complete(null);
+        done.completeOnTimeout(null, LOGOUT_WAIT_MILLIS, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((v, e) -> {
+                    sessionRegistry.removeListener(listener);
+                    synchronized (lock) {
+                        sharedAcceptor.drop(leaving);
+                    }
+                });
     }
 
     /**
@@ -128,7 +295,7 @@ public class FixEngineService {
         synchronized (lock) {
             String key = conn.getId();
             if (key == null) return false;
-            if (acceptors.containsKey(key)) {
+            if (acceptors.containsKey(key) || sharedAcceptor.contains(key)) {
                 logger.info("Acceptor already running for connection {}", key);
                 return false;
             }
@@ -142,51 +309,81 @@ public class FixEngineService {
 
             try (InputStream sin = new FileInputStream(settingsFile)) {
                 SessionSettings settings = new SessionSettings(sin);
-                MessageStoreFactory storeFactory = new FileStoreFactory(settings);
+                MessageStoreFactory storeFactory = storeProvider.factory(conn.getStore(), settings);
+                if (shared()) return addSharedConnection(key, settings, storeFactory);
                 LogFactory logFactory = new SLF4JLogFactory(settings);
                 MessageFactory messageFactory = new DefaultMessageFactory();
-                Application application = new FixApplication(routingService, sessionRegistry, messageStreamHandler);
+                Application application = new FixApplication(sessionRegistry, routingPipeline, metrics, dispatcher);
 
-                SocketAcceptor acc = new SocketAcceptor(application, storeFactory, settings, logFactory, messageFactory);
+                Acceptor acc = newAcceptor(application, storeFactory, settings, logFactory, messageFactory);
                 acc.start();
                 acceptors.put(key, acc);
-                logger.info("QuickFIX/J acceptor started for connection '{}' (settings={})", key, settingsPath);
+                logger.info("QuickFIX/J acceptor started for connection '{}' (settings={}, store={})", key, settingsPath, conn.getStore() == null ? "file" : conn.getStore());
                 return true;
-            } catch (ConfigError | IOException e) {
+            } catch (ConfigError | FieldConvertError | IOException e) {
                 logger.error("Failed to start QuickFIX/J acceptor for {}", settingsPath, e);
                 return false;
             }
         }
     }
 
+    private boolean addSharedConnection(String key, SessionSettings settings, MessageStoreFactory storeFactory)
+            throws ConfigError, FieldConvertError {
+        if (!sharedAcceptor.add(key, settings, storeFactory)) return false;
+        syncShared();
+        logger.info("Connection '{}' added to the shared QuickFIX/J acceptor", key);
+        return true;
+    }
+
     public boolean stopAcceptorForConnectionId(String id) {
         synchronized (lock) {
-            SocketAcceptor acc = acceptors.remove(id);
-            if (acc == null) return false;
-            try {
-                acc.stop();
-                logger.info("QuickFIX/J acceptor stopped for connection {}", id);
-            } catch (Exception ex) {
-                logger.warn("Error stopping acceptor for connection {}", id, ex);
+            if (shared()) {
+                List<SessionID> leaving = sharedAcceptor.remove(id);
+                if (leaving == null) return false;
+                dropAfterLogout(leaving);
+                return true;
             }
+            if (!acceptors.containsKey(id)) return false;
+            stopEntry(id);
             return true;
         }
     }
 
+    private Acceptor newAcceptor(Application application, MessageStoreFactory storeFactory, SessionSettings settings,
+                                 LogFactory logFactory, MessageFactory messageFactory) throws ConfigError {
+        return dispatcher.threadedAcceptor()
+                ? new ThreadedSocketAcceptor(application, storeFactory, settings, logFactory, messageFactory)
+                : new SocketAcceptor(application, storeFactory, settings, logFactory, messageFactory);
+    }
+
     public List<SessionID> listSessions() {
-        return new ArrayList<>(sessionRegistry.getSessions());
+        return sessionRegistry.snapshot().sessionIds();
+    }
+
+    /** Every session of the acceptors and initiators, logged on or not; logged-on ones first. */
+    public Set<SessionID> allSessions() {
+        Set<SessionID> ids = new LinkedHashSet<>(sessionRegistry.snapshot().sessionIds());
+        synchronized (lock) {
+            for (Acceptor acc : acceptors.values()) ids.addAll(acc.getSessions());
+            ids.addAll(sharedAcceptor.sessions());
+            ids.addAll(initiatorEngine.sessions());
+        }
+        return ids;
     }
 
     private static class FixApplication implements Application {
 
-        private final RoutingService routingService;
         private final SessionRegistry sessionRegistry;
-        private final MessageStreamHandler messageStreamHandler;
+        private final RoutingPipeline routingPipeline;
+        private final HubMetrics metrics;
+        private final SessionDispatcher dispatcher;
 
-        public FixApplication(RoutingService routingService, SessionRegistry sessionRegistry, MessageStreamHandler messageStreamHandler) {
-            this.routingService = routingService;
+        public FixApplication(SessionRegistry sessionRegistry, RoutingPipeline routingPipeline, HubMetrics metrics,
+                              SessionDispatcher dispatcher) {
             this.sessionRegistry = sessionRegistry;
-            this.messageStreamHandler = messageStreamHandler;
+            this.routingPipeline = routingPipeline;
+            this.metrics = metrics;
+            this.dispatcher = dispatcher;
         }
 
         @Override
@@ -198,12 +395,15 @@ public class FixEngineService {
         public void onLogon(SessionID sessionId) {
             logger.info("onLogon {}", sessionId);
             sessionRegistry.add(sessionId);
+            metrics.sessionEvent("logon");
         }
 
         @Override
         public void onLogout(SessionID sessionId) {
             logger.info("onLogout {}", sessionId);
             sessionRegistry.remove(sessionId);
+            dispatcher.release(sessionId);
+            metrics.sessionEvent("logout");
         }
 
         @Override
@@ -223,33 +423,19 @@ public class FixEngineService {
 
         @Override
         public void fromApp(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
-            logger.info("fromApp {} {}", sessionId, message);
-            
-            // Broadcast message event via WebSocket
-            if (messageStreamHandler != null) {
-                try {
-                    String messageType = message.getHeader().getString(35); // MsgType field
-                    FIXMessageEvent event = new FIXMessageEvent(
-                        "incoming",
-                        sessionId.toString(),
-                        sessionId.getSenderCompID(),
-                        sessionId.getTargetCompID(),
-                        messageType,
-                        message.toString(),
-                        "FROM_CLIENT"
-                    );
-                    messageStreamHandler.broadcastMessage(event);
-                } catch (Exception e) {
-                    logger.debug("Failed to broadcast message via WebSocket", e);
-                }
-            }
-            
-            try {
-                boolean routed = routingService.route(message, sessionId);
-                if (!routed) logger.debug("Message not routed: {}", message);
-            } catch (Exception e) {
-                logger.error("Routing failed", e);
+            logger.debug("fromApp {} {}", sessionId, message);
+            if (!dispatcher.lanes()) {
+                // broadcast, routing and delivery run on the pipeline threads, not the session thread
+                metrics.received(sessionId);
+                routingPipeline.submit(message, sessionId);
+                return;
             }
+            // the lane is the session's own serial worker, so it runs the pipeline steps itself
+            boolean accepted = dispatcher.dispatch(sessionId, () -> {
+                metrics.received(sessionId);
+                routingPipeline.process(message, sessionId);
+            });
+            if (!accepted) logger.warn("Dispatch lane of {} full; message rejected", sessionId);
         }
     }
 }
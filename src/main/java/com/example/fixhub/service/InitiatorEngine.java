@@ -0,0 +1,154 @@
+package com.example.fixhub.service;
+
+import com.example.fixhub.config.OutgoingConfig;
+import com.example.fixhub.store.MessageStoreProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DefaultMessageFactory;
+import quickfix.Initiator;
+import quickfix.MessageFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.SLF4JLogFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SocketInitiator;
+import quickfix.ThreadedSocketInitiator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Connects out to the outgoing entries that have a host and port, one initiator per entry with
+ * {@link OutgoingConfig#sessions} sessions. Every session of an entry has the entry's name as its
+ * outgoing name, so {@link OutgoingConnector} balances across whichever of them are logged on.
+ * Reconnects use QuickFIX/J's ReconnectInterval list, which steps through the configured backoff
+ * and then stays on the last value. Not thread-safe: the engine service calls it under its lock.
+ */
+class InitiatorEngine {
+    private static final Logger logger = LoggerFactory.getLogger(InitiatorEngine.class);
+
+    static final String DEFAULT_SENDER_COMP_ID = "FIXHUB";
+    private static final String DEFAULT_BACKOFF = "1;2;5;10;30";
+
+    private final Application application;
+    private final MessageStoreProvider storeProvider;
+    private final MessageFactory messageFactory = new DefaultMessageFactory();
+    private final Map<String, Initiator> initiators = new LinkedHashMap<>();
+    private final Map<String, String> definitions = new HashMap<>();
+
+    InitiatorEngine(Application application, MessageStoreProvider storeProvider) {
+        this.application = application;
+        this.storeProvider = storeProvider;
+    }
+
+    void start(List<OutgoingConfig> outgoing, boolean threaded) {
+        if (outgoing == null) return;
+        for (OutgoingConfig oc : outgoing) {
+            if (!connects(oc) || initiators.containsKey(oc.name)) continue;
+            try {
+                SessionSettings settings = settings(oc);
+                MessageStoreFactory storeFactory = storeProvider.factory(oc.store, settings);
+                Initiator initiator = threaded
+                        ? new ThreadedSocketInitiator(application, storeFactory, settings, new SLF4JLogFactory(settings), messageFactory)
+                        : new SocketInitiator(application, storeFactory, settings, new SLF4JLogFactory(settings), messageFactory);
+                initiator.start();
+                initiators.put(oc.name, initiator);
+                definitions.put(oc.name, definition(oc));
+                logger.info("Initiator started for outgoing '{}' to {}:{} with {} session(s)",
+                        oc.name, oc.host, oc.port, Math.max(oc.sessions, 1));
+            } catch (ConfigError e) {
+                logger.error("Failed to start initiator for outgoing '{}'", oc.name, e);
+            }
+        }
+    }
+
+    /**
+     * Stops the initiators whose entry is gone or changed in a way that affects its sessions,
+     * then starts the new and changed ones. Balancing and send limits are not part of that; the
+     * connector picks them up without a reconnect.
+     */
+    void reload(List<OutgoingConfig> outgoing, boolean threaded) {
+        Map<String, String> wanted = new HashMap<>();
+        if (outgoing != null) {
+            for (OutgoingConfig oc : outgoing) {
+                if (connects(oc)) wanted.put(oc.name, definition(oc));
+            }
+        }
+        for (String name : new ArrayList<>(initiators.keySet())) {
+            if (!definitions.get(name).equals(wanted.get(name))) stop(name);
+        }
+        start(outgoing, threaded);
+    }
+
+    void stop() {
+        for (String name : new ArrayList<>(initiators.keySet())) stop(name);
+    }
+
+    private void stop(String name) {
+        Initiator initiator = initiators.remove(name);
+        definitions.remove(name);
+        if (initiator == null) return;
+        try {
+            initiator.stop();
+            logger.info("Initiator stopped for outgoing '{}'", name);
+        } catch (Exception ex) {
+            logger.warn("Error stopping initiator for outgoing '{}'", name, ex);
+        }
+    }
+
+    List<SessionID> sessions() {
+        List<SessionID> ids = new ArrayList<>();
+        for (Initiator initiator : initiators.values()) ids.addAll(initiator.getSessions());
+        return ids;
+    }
+
+    private static boolean connects(OutgoingConfig oc) {
+        return oc.name != null && oc.host != null && !oc.host.isBlank() && oc.port > 0;
+    }
+
+    private static String definition(OutgoingConfig oc) {
+        return oc.host + ":" + oc.port + "|" + oc.fixVersion + "|" + oc.targetCompID + "|" + senderCompIDs(oc)
+                + "|" + oc.heartBtInt + "|" + oc.reconnectBackoff + "|" + oc.store;
+    }
+
+    private static SessionSettings settings(OutgoingConfig oc) {
+        SessionSettings settings = new SessionSettings();
+        settings.setString("ConnectionType", "initiator");
+        settings.setString("SocketConnectHost", oc.host);
+        settings.setLong("SocketConnectPort", oc.port);
+        settings.setLong("HeartBtInt", oc.heartBtInt > 0 ? oc.heartBtInt : 30);
+        settings.setString("ReconnectInterval", oc.reconnectBackoff == null || oc.reconnectBackoff.isEmpty()
+                ? DEFAULT_BACKOFF
+                : oc.reconnectBackoff.stream().map(String::valueOf).collect(Collectors.joining(";")));
+        settings.setString("StartTime", "00:00:00");
+        settings.setString("EndTime", "00:00:00");
+        settings.setString("UseDataDictionary", "N");
+        settings.setString("FileStorePath", "store/outgoing/" + oc.name);
+
+        String begin = oc.fixVersion == null || oc.fixVersion.isBlank() ? "FIX.4.4" : oc.fixVersion;
+        String target = oc.targetCompID == null || oc.targetCompID.isBlank() ? oc.name : oc.targetCompID;
+        for (String sender : senderCompIDs(oc)) {
+            SessionID sid = new SessionID(begin, sender, target);
+            settings.setString(sid, "BeginString", begin);
+            settings.setString(sid, "SenderCompID", sender);
+            settings.setString(sid, "TargetCompID", target);
+        }
+        return settings;
+    }
+
+    private static List<String> senderCompIDs(OutgoingConfig oc) {
+        if (oc.senderCompIDs != null && !oc.senderCompIDs.isEmpty()) return oc.senderCompIDs;
+        String base = oc.senderCompID == null || oc.senderCompID.isBlank() ? DEFAULT_SENDER_COMP_ID : oc.senderCompID;
+        int n = Math.max(oc.sessions, 1);
+        if (n == 1) return List.of(base);
+        List<String> ids = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) ids.add(base + "_" + i);
+        return ids;
+    }
+}
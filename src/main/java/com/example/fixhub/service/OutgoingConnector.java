@@ -1,41 +1,443 @@
 package com.example.fixhub.service;
 
+import com.example.fixhub.config.OutgoingConfig;
+import com.example.fixhub.fix.PassthroughMessage;
+import com.example.fixhub.metrics.HubMetrics;
+import com.example.fixhub.metrics.TrafficStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import quickfix.Message;
+import quickfix.Responder;
 import quickfix.Session;
 import quickfix.SessionID;
+import quickfix.mina.IoSessionResponder;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Delivers routed messages to outgoing sessions. {@link #sendTo} only picks a session and puts
+ * the message on that session's bounded send queue, so a routing thread never waits on the
+ * session lock or a slow counterparty; a full queue rejects the message instead.
+ *
+ * <p>Queues are drained on a shared executor: virtual threads when the JVM has them, otherwise
+ * {@code fixhub.outbound.drain-threads} platform threads. A drain is scheduled when a message
+ * arrives and none is pending, and takes up to {@code fixhub.outbound.batch-size} messages at a
+ * time and sends them back to back, so MINA flushes the burst in one pass of its I/O processor;
+ * after each batch it yields the thread to other sessions. Before a batch it waits while the
+ * session's socket already has {@code max-in-flight} writes pending, and it paces sends to
+ * {@code rate-limit} messages per second. Both limits can be set per outgoing entry. Waits do not
+ * hold a thread: the drain is resumed from a timer.
+ *
+ * <p>Destinations are resolved against the session registry's current snapshot. When a session
+ * logs out its send queue is dropped if empty; one with messages left is drained (and counted
+ * as failed) and replaced on the next logon.
+ */
 @Component
-public class OutgoingConnector {
+public class OutgoingConnector implements MeterBinder, SessionRegistry.Listener {
     private static final Logger logger = LoggerFactory.getLogger(OutgoingConnector.class);
 
+    private static final long STALL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
     private final SessionRegistry sessionRegistry;
+    private final HubMetrics metrics;
+    private final TrafficStats traffic;
+
+    @Value("${fixhub.outbound.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    @Value("${fixhub.outbound.batch-size:64}")
+    private int batchSize = 64;
+
+    @Value("${fixhub.outbound.max-in-flight:1000}")
+    private int maxInFlight = 1000;
+
+    @Value("${fixhub.outbound.rate-limit:0}")
+    private int rateLimit;
+
+    @Value("${fixhub.outbound.drain-threads:0}")
+    private int drainThreads;
 
-    public OutgoingConnector(SessionRegistry sessionRegistry) {
+    // outgoing name -> policy, from the hub config; names not listed use round-robin and the hub limits
+    private volatile Map<String, Policy> policies = Map.of();
+    private volatile Policy defaults;
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private final Map<SessionID, SendQueue> queues = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean stopped;
+    private ExecutorService drains;
+    private ScheduledExecutorService timer;
+    private boolean virtualThreads;
+
+    public OutgoingConnector(SessionRegistry sessionRegistry, HubMetrics metrics, TrafficStats traffic) {
         this.sessionRegistry = sessionRegistry;
+        this.metrics = metrics;
+        this.traffic = traffic;
+    }
+
+    /** Takes the balancing and send limits of each outgoing entry. */
+    public void setOutgoing(List<OutgoingConfig> outgoing) {
+        Map<String, Policy> m = new HashMap<>();
+        if (outgoing != null) {
+            for (OutgoingConfig oc : outgoing) {
+                if (oc.name == null) continue;
+                m.put(oc.name, new Policy(balance(oc),
+                        oc.rateLimit != null ? oc.rateLimit : rateLimit,
+                        oc.maxInFlight != null ? oc.maxInFlight : maxInFlight));
+            }
+        }
+        this.policies = Map.copyOf(m);
     }
 
+    @PostConstruct
+    public void start() {
+        try {
+            drains = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+        } catch (ReflectiveOperationException e) {
+            int n = drainThreads > 0 ? drainThreads : Runtime.getRuntime().availableProcessors();
+            AtomicInteger seq = new AtomicInteger();
+            drains = Executors.newFixedThreadPool(n, r -> {
+                Thread t = new Thread(r, "fixhub-send-" + seq.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fixhub-send-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        sessionRegistry.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sessionRegistry.removeListener(this);
+        stopped = true;
+        if (timer != null) timer.shutdownNow();
+        if (drains != null) drains.shutdownNow();
+    }
+
+    @Override
+    public void onLogout(SessionID id, SessionRegistry.Snapshot snapshot) {
+        queues.computeIfPresent(id, (k, q) -> q.queue.isEmpty() ? null : q);
+    }
+
+    /** {@link #sendTo(String, Message, TrafficStats.Origin)} for a message from outside the pipeline. */
     public boolean sendTo(String outgoingName, Message message) {
-        Set<SessionID> sessions = sessionRegistry.getSessions();
-        for (SessionID sid : sessions) {
-            // try match by SenderCompID or TargetCompID
-            if (outgoingName.equals(sid.getSenderCompID()) || outgoingName.equals(sid.getTargetCompID())) {
+        return sendTo(outgoingName, message, null);
+    }
+
+    /**
+     * Queues the message for a logged-on session of the destination. Returns false if there is
+     * none or its send queue is full; delivery failures after that are counted by the drain. The
+     * origin, if given, is recorded in the traffic statistics once the message is written.
+     */
+    public boolean sendTo(String outgoingName, Message message, TrafficStats.Origin origin) {
+        Session session = select(outgoingName);
+        if (session == null) return false;
+        SendQueue q = queues.get(session.getSessionID());
+        if (q == null || q.session != session) {
+            q = queues.compute(session.getSessionID(),
+                    (k, old) -> old != null && old.session == session ? old : new SendQueue(outgoingName, session));
+        }
+        if (q.offer(new Outbound(message, origin))) return true;
+        rejected.increment();
+        metrics.sendFailed(outgoingName);
+        logger.debug("Send queue of {} is full; message to '{}' rejected", session.getSessionID(), outgoingName);
+        return false;
+    }
+
+    /**
+     * Queues the message for each destination, every one with its own header and the shared
+     * body of {@code message}. The destinations' drains deliver in parallel. Returns each
+     * destination with whether it took the message, in the given order.
+     */
+    public Map<String, Boolean> sendToAll(List<String> destinations, PassthroughMessage message,
+                                          TrafficStats.Origin origin) {
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        for (String d : destinations) {
+            results.put(d, sendTo(d, new PassthroughMessage(message), origin));
+        }
+        return results;
+    }
+
+    /**
+     * Sends on the calling thread, bypassing the send queue and its limits. For tools and
+     * benchmarks that need the synchronous QuickFIX/J send.
+     */
+    public boolean sendNow(String outgoingName, Message message) {
+        Session session = select(outgoingName);
+        return session != null && send(outgoingName, session, message, null);
+    }
+
+    private Session select(String outgoingName) {
+        List<Session> candidates = sessionRegistry.candidates(outgoingName);
+        if (candidates.isEmpty()) {
+            logger.debug("No connected outgoing session matched '{}'; message not sent", outgoingName);
+            metrics.sendFailed(outgoingName);
+            return null;
+        }
+        if (candidates.size() == 1) return candidates.get(0);
+        if (policy(outgoingName).balance == Balance.LEAST_QUEUE) {
+            Session best = null;
+            long bestDepth = Long.MAX_VALUE;
+            for (Session s : candidates) {
+                long d = queueDepth(s);
+                if (d < bestDepth) {
+                    best = s;
+                    bestDepth = d;
+                }
+            }
+            return best;
+        }
+        int i = cursors.computeIfAbsent(outgoingName, k -> new AtomicInteger()).getAndIncrement();
+        return candidates.get((i & Integer.MAX_VALUE) % candidates.size());
+    }
+
+    private boolean send(String outgoingName, Session session, Message message, TrafficStats.Origin origin) {
+        long start = System.nanoTime();
+        boolean sent = false;
+        try {
+            // Session.send fills in BeginString, CompIDs and MsgSeqNum for the target session
+            sent = session.send(message);
+            logger.debug("Sent message to outgoing session {}", session.getSessionID());
+        } catch (Exception e) {
+            logger.error("Failed to send to {}", session.getSessionID(), e);
+        }
+        metrics.recordSend(System.nanoTime() - start);
+        if (sent) {
+            metrics.sent(session.getSessionID());
+            traffic.sent(session.getSessionID(), origin);
+        } else {
+            metrics.sendFailed(outgoingName);
+        }
+        return sent;
+    }
+
+    /** Messages waiting on the session's send queue plus writes still pending on its socket. */
+    long queueDepth(Session session) {
+        SendQueue q = queues.get(session.getSessionID());
+        return (q == null ? 0 : q.queue.size()) + pendingWrites(session);
+    }
+
+    private static long pendingWrites(Session session) {
+        Responder r = session.getResponder();
+        return r instanceof IoSessionResponder ? ((IoSessionResponder) r).getIoSession().getScheduledWriteMessages() : 0;
+    }
+
+    private Policy policy(String outgoingName) {
+        Policy p = policies.get(outgoingName);
+        if (p != null) return p;
+        p = defaults;
+        if (p == null) defaults = p = new Policy(Balance.ROUND_ROBIN, rateLimit, maxInFlight);
+        return p;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> sessions = new LinkedHashMap<>();
+        long depth = 0;
+        for (SendQueue q : queues.values()) {
+            depth += q.queue.size();
+            sessions.put(q.session.getSessionID().toString(), q.stats());
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("queue_capacity", queueCapacity);
+        m.put("batch_size", batchSize);
+        m.put("virtual_threads", virtualThreads);
+        m.put("depth", depth);
+        m.put("rejected", rejected.sum());
+        m.put("sessions", sessions);
+        return m;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("fixhub.outbound.queued", queues, qs -> qs.values().stream().mapToInt(q -> q.queue.size()).sum())
+                .description("Messages waiting on outgoing send queues")
+                .register(registry);
+        FunctionCounter.builder("fixhub.outbound.rejected", rejected, LongAdder::sum)
+                .description("Messages refused because an outgoing send queue was full")
+                .register(registry);
+    }
+
+    private static Balance balance(OutgoingConfig oc) {
+        if (oc.balance == null || oc.balance.isBlank()) return Balance.ROUND_ROBIN;
+        try {
+            return Balance.valueOf(oc.balance.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown balance '{}' for outgoing '{}'; using round-robin", oc.balance, oc.name);
+            return Balance.ROUND_ROBIN;
+        }
+    }
+
+    /** A queued message and where it came from. */
+    private static final class Outbound {
+        final Message message;
+        final TrafficStats.Origin origin;
+
+        Outbound(Message message, TrafficStats.Origin origin) {
+            this.message = message;
+            this.origin = origin;
+        }
+    }
+
+    /** Balancing and send limits of one outgoing entry; zero limits mean unlimited. */
+    private static final class Policy {
+        final Balance balance;
+        final int rateLimit;
+        final int maxInFlight;
+
+        Policy(Balance balance, int rateLimit, int maxInFlight) {
+            this.balance = balance;
+            this.rateLimit = rateLimit;
+            this.maxInFlight = maxInFlight;
+        }
+    }
+
+    /**
+     * Send queue of one session. {@code draining} is set while a drain is scheduled, running or
+     * waiting on the timer, so at most one runs per session and messages keep their order.
+     */
+    private final class SendQueue {
+        final String outgoingName;
+        final Session session;
+        final BlockingQueue<Outbound> queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder stalls = new LongAdder();
+        // the batch being sent and the next message in it; only the drain holding the flag uses them
+        private final List<Outbound> batch = new ArrayList<>(Math.max(batchSize, 1));
+        private int next;
+        private boolean stalled;
+        private long nextSendNanos;
+
+        SendQueue(String outgoingName, Session session) {
+            this.outgoingName = outgoingName;
+            this.session = session;
+        }
+
+        boolean offer(Outbound message) {
+            if (stopped || !queue.offer(message)) return false;
+            if (!draining.get()) startDrain();
+            return true;
+        }
+
+        private void startDrain() {
+            if (draining.compareAndSet(false, true)) schedule();
+        }
+
+        private void schedule() {
+            try {
+                drains.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // stopping
+            }
+        }
+
+        private void drain() {
+            long wait = 0;
+            try {
+                wait = sendBatch();
+            } catch (RuntimeException e) {
+                logger.error("Send drain of {} failed", session.getSessionID(), e);
+            }
+            if (stopped) return;
+            if (wait > 0) {
                 try {
-                    Session.sendToTarget(message, sid);
-                    logger.info("Sent message to outgoing session {}", sid);
-                    return true;
-                } catch (Exception e) {
-                    logger.error("Failed to send to {}", sid, e);
-                    return false;
+                    timer.schedule(this::schedule, wait, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // stopping
                 }
+                return;
             }
+            // yield between batches so one busy session does not hold a thread
+            if (!batch.isEmpty() || !queue.isEmpty()) {
+                schedule();
+                return;
+            }
+            draining.set(false);
+            // a message may have arrived after the last check but before the flag was cleared
+            if (!queue.isEmpty()) startDrain();
         }
 
-        logger.warn("No connected outgoing session matched '{}'; message not sent", outgoingName);
-        return false;
+        /**
+         * Sends the open batch, taking the next one from the queue if none is open. Returns the
+         * nanoseconds to wait before resuming, or 0 once the batch is sent or there is none.
+         */
+        private long sendBatch() {
+            Policy p = policy(outgoingName);
+            if (next == 0) {
+                if (batch.isEmpty()) queue.drainTo(batch, Math.max(batchSize, 1));
+                if (batch.isEmpty()) return 0;
+                // hold the batch while the socket already has max-in-flight writes pending
+                if (p.maxInFlight > 0 && pendingWrites(session) >= p.maxInFlight) {
+                    if (!stalled) stalls.increment();
+                    stalled = true;
+                    return STALL_NANOS;
+                }
+                stalled = false;
+            }
+            while (next < batch.size()) {
+                long wait = pace(p.rateLimit);
+                if (wait > 0) return wait;
+                Outbound m = batch.get(next++);
+                if (send(outgoingName, session, m.message, m.origin)) sent.increment();
+                else failed.increment();
+            }
+            batches.increment();
+            batch.clear();
+            next = 0;
+            return 0;
+        }
+
+        /** Spaces sends 1/rate seconds apart; returns how long to wait before the next one may go. */
+        private long pace(int rate) {
+            if (rate <= 0) return 0;
+            long now = System.nanoTime();
+            if (nextSendNanos - now > 0) return nextSendNanos - now;
+            nextSendNanos = Math.max(nextSendNanos, now) + TimeUnit.SECONDS.toNanos(1) / rate;
+            return 0;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("outgoing", outgoingName);
+            m.put("depth", queue.size());
+            m.put("pending_writes", pendingWrites(session));
+            m.put("sent", sent.sum());
+            m.put("failed", failed.sum());
+            m.put("batches", batches.sum());
+            m.put("stalls", stalls.sum());
+            m.put("draining", draining.get());
+            return m;
+        }
     }
 }
@@ -0,0 +1,215 @@
+package com.example.fixhub.service;
+
+import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.fix.ByteSliceMap;
+import com.example.fixhub.fix.FixTagView;
+import com.example.fixhub.fix.TagSelector;
+import quickfix.SessionID;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index over the configured routes. Rules are grouped by source CompID and then by
+ * condition tag and value, so a lookup only touches the buckets for the session's CompIDs and
+ * one map probe per distinct condition tag. The lowest matching rule index wins, which keeps the
+ * first-match semantics of the ordered rule list.
+ *
+ * <p>Condition values are read from a {@link FixTagView} over the raw message and compared
+ * byte-wise against pre-encoded values, so evaluation allocates nothing per message. A condition
+ * sees the first occurrence of its tag anywhere in the message, header fields and repeating
+ * group entries included; see {@link FixTagView}.
+ *
+ * <p>A rule marked {@code multicast} does not end the match: {@link #matchAll} goes on through
+ * the later rules in order, collecting every one that applies, up to and including the first
+ * matching rule that is not multicast. Those later rules are checked one by one, which only
+ * happens for messages whose first match is multicast.
+ */
+public final class RouteTable {
+
+    public static final RouteTable EMPTY = compile(Collections.emptyList());
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<RouteConfig> rules;
+    private final Map<String, Bucket> bySource;
+    private final Bucket wildcard;
+    private final TagSelector conditionTags;
+    // per rule, for the sequential scan after a multicast match: view slot or -1, encoded value
+    private final int[] ruleSlots;
+    private final byte[][] ruleValues;
+    // per rule, the result of matchAll when it is the first match and not multicast
+    private final List<List<RouteConfig>> single;
+
+    private RouteTable(List<RouteConfig> rules, Map<String, Bucket> bySource, Bucket wildcard, TagSelector conditionTags) {
+        this.rules = rules;
+        this.bySource = bySource;
+        this.wildcard = wildcard;
+        this.conditionTags = conditionTags;
+        this.ruleSlots = new int[rules.size()];
+        this.ruleValues = new byte[rules.size()][];
+        List<List<RouteConfig>> single = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            RouteConfig r = rules.get(i);
+            boolean conditional = r.conditionTag != null && r.conditionValue != null;
+            ruleSlots[i] = conditional ? conditionTags.slot(r.conditionTag) : -1;
+            ruleValues[i] = conditional ? r.conditionValue.getBytes(StandardCharsets.ISO_8859_1) : null;
+            single.add(List.of(r));
+        }
+        this.single = single;
+    }
+
+    public static RouteTable compile(List<RouteConfig> routes) {
+        List<RouteConfig> rules = routes == null ? Collections.emptyList() : List.copyOf(routes);
+        Map<String, BucketBuilder> sources = new HashMap<>();
+        BucketBuilder wildcard = new BucketBuilder();
+        TagSelector selector = TagSelector.of(rules.stream()
+                .filter(r -> r.conditionTag != null && r.conditionValue != null)
+                .mapToInt(r -> r.conditionTag)
+                .toArray());
+
+        for (int i = 0; i < rules.size(); i++) {
+            RouteConfig r = rules.get(i);
+            r.label(); // build the metrics label here, off the message path
+            BucketBuilder b = r.from == null || r.from.isBlank()
+                    ? wildcard
+                    : sources.computeIfAbsent(r.from, k -> new BucketBuilder());
+            b.add(i, r);
+        }
+
+        Map<String, Bucket> bySource = new HashMap<>();
+        for (Map.Entry<String, BucketBuilder> e : sources.entrySet()) {
+            bySource.put(e.getKey(), e.getValue().build(selector));
+        }
+        return new RouteTable(rules, Map.copyOf(bySource), wildcard.build(selector), selector);
+    }
+
+    public List<RouteConfig> rules() {
+        return rules;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Tags the view passed to {@link #match} must capture. Empty when no rule has a condition,
+     * in which case the view may be null.
+     */
+    public TagSelector conditionTags() {
+        return conditionTags;
+    }
+
+    /**
+     * Returns the first rule (in configuration order) that applies to the message, or null.
+     * {@code view} must have been wrapped with {@link #conditionTags()}.
+     */
+    public RouteConfig match(FixTagView view, SessionID incomingSession) {
+        int best = matchIndex(view, incomingSession);
+        return best == NO_MATCH ? null : rules.get(best);
+    }
+
+    /**
+     * Returns the first matching rule and, while the matched rules are multicast, every later
+     * rule that matches too. Empty if nothing matches. The list is immutable; for a first match
+     * that is not multicast it is built with the table, so such a match allocates nothing.
+     */
+    public List<RouteConfig> matchAll(FixTagView view, SessionID incomingSession) {
+        int first = matchIndex(view, incomingSession);
+        if (first == NO_MATCH) return Collections.emptyList();
+        RouteConfig r = rules.get(first);
+        if (!r.multicast) return single.get(first);
+
+        String sender = incomingSession.getSenderCompID();
+        String target = incomingSession.getTargetCompID();
+        List<RouteConfig> matched = new ArrayList<>();
+        matched.add(r);
+        for (int i = first + 1; i < rules.size(); i++) {
+            r = rules.get(i);
+            boolean fromMatches = r.from == null || r.from.isBlank() || r.from.equals(sender) || r.from.equals(target);
+            if (!fromMatches || (ruleSlots[i] >= 0 && !view.valueEquals(ruleSlots[i], ruleValues[i]))) continue;
+            matched.add(r);
+            if (!r.multicast) break;
+        }
+        return matched;
+    }
+
+    private int matchIndex(FixTagView view, SessionID incomingSession) {
+        if (rules.isEmpty()) return NO_MATCH;
+
+        String sender = incomingSession.getSenderCompID();
+        String target = incomingSession.getTargetCompID();
+
+        int best = wildcard.match(view, NO_MATCH);
+        Bucket b = bySource.get(sender);
+        if (b != null) best = b.match(view, best);
+        if (!target.equals(sender)) {
+            b = bySource.get(target);
+            if (b != null) best = b.match(view, best);
+        }
+        return best;
+    }
+
+    private static final class Bucket {
+        private final int firstUnconditional;
+        // view slots of the distinct condition tags, ordered by the lowest rule index that uses them
+        private final int[] slots;
+        private final int[] tagFirstIndex;
+        private final ByteSliceMap[] values;
+
+        Bucket(int firstUnconditional, int[] slots, int[] tagFirstIndex, ByteSliceMap[] values) {
+            this.firstUnconditional = firstUnconditional;
+            this.slots = slots;
+            this.tagFirstIndex = tagFirstIndex;
+            this.values = values;
+        }
+
+        int match(FixTagView view, int best) {
+            if (firstUnconditional < best) best = firstUnconditional;
+            for (int t = 0; t < slots.length; t++) {
+                // later tags cannot beat the current best once their lowest rule index is past it
+                if (tagFirstIndex[t] >= best) break;
+                int off = view.valueOffset(slots[t]);
+                if (off == FixTagView.NOT_FOUND) continue;
+                int idx = values[t].get(view.buffer(), off, view.valueLength(slots[t]));
+                if (idx != ByteSliceMap.MISSING && idx < best) best = idx;
+            }
+            return best;
+        }
+    }
+
+    private static final class BucketBuilder {
+        private int firstUnconditional = NO_MATCH;
+        private final Map<Integer, Map<String, Integer>> conditions = new LinkedHashMap<>();
+
+        void add(int index, RouteConfig r) {
+            if (r.conditionTag == null || r.conditionValue == null) {
+                if (index < firstUnconditional) firstUnconditional = index;
+                return;
+            }
+            conditions.computeIfAbsent(r.conditionTag, k -> new HashMap<>())
+                    .putIfAbsent(r.conditionValue, index);
+        }
+
+        Bucket build(TagSelector selector) {
+            List<Map.Entry<Integer, Map<String, Integer>>> entries = new ArrayList<>(conditions.entrySet());
+            // insertion order already follows the first rule using each tag
+            int n = entries.size();
+            int[] slots = new int[n];
+            int[] tagFirstIndex = new int[n];
+            ByteSliceMap[] values = new ByteSliceMap[n];
+            for (int t = 0; t < n; t++) {
+                Map.Entry<Integer, Map<String, Integer>> e = entries.get(t);
+                slots[t] = selector.slot(e.getKey());
+                tagFirstIndex[t] = Collections.min(e.getValue().values());
+                values[t] = new ByteSliceMap(e.getValue());
+            }
+            return new Bucket(firstUnconditional, slots, tagFirstIndex, values);
+        }
+    }
+}
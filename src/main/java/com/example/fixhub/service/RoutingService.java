@@ -1,84 +1,266 @@
 package com.example.fixhub.service;
 
 import com.example.fixhub.config.HubConfig;
+import com.example.fixhub.config.OutgoingConfig;
 import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.fix.FixTagView;
+import com.example.fixhub.fix.PassthroughMessage;
+import com.example.fixhub.fix.TagSelector;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import quickfix.FieldNotFound;
 import quickfix.Message;
 import quickfix.SessionID;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+/**
+ * Owns the live hub config and its compiled route table. Both sit in one immutable, versioned
+ * snapshot that the message path reads with a single volatile load. File loads replace the
+ * snapshot; route edits from the REST API derive a new one from the current and install it with
+ * compare-and-set, so writers never lock out readers and a reader never sees half an edit.
+ * Edited routes are written back to the config file on a background thread.
+ */
 @Service
 public class RoutingService {
     private static final Logger logger = LoggerFactory.getLogger(RoutingService.class);
 
     private final OutgoingConnector outgoingConnector;
+    private final SessionRegistry sessionRegistry;
 
     @Value("${fixhub.config-path:conf/fixhub.yml}")
     private String configPath;
 
-    private HubConfig config = new HubConfig();
+    @Value("${fixhub.config-persist:false}")
+    private boolean persist;
 
-    public RoutingService(OutgoingConnector outgoingConnector) {
+    // config and its compiled route table, replaced as a whole so readers never see a mix
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(new HubConfig(), RouteTable.EMPTY, 0));
+    // the file the config came from, where route edits are written back
+    private volatile File source;
+    private final AtomicBoolean writePending = new AtomicBoolean();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "fixhub-config-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ThreadLocal<FixTagView> VIEW = ThreadLocal.withInitial(FixTagView::new);
+
+    public RoutingService(OutgoingConnector outgoingConnector, SessionRegistry sessionRegistry) {
         this.outgoingConnector = outgoingConnector;
+        this.sessionRegistry = sessionRegistry;
     }
 
     @PostConstruct
     public void load() {
-        File f = new File(configPath);
+        load(new File(configPath));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    /**
+     * Parses and publishes the config. Returns it, or null if the file is missing or invalid, in
+     * which case the current config stays in place.
+     */
+    public HubConfig load(File f) {
         if (!f.exists()) {
-            logger.warn("Hub config not found at {}", configPath);
-            return;
+            logger.warn("Hub config not found at {}", f.getPath());
+            return null;
         }
-
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
         try {
-            this.config = mapper.readValue(f, HubConfig.class);
-            logger.info("Loaded hub config with {} incoming, {} outgoing, {} routes",
-                    config.incoming == null ? 0 : config.incoming.size(),
-                    config.outgoing == null ? 0 : config.outgoing.size(),
-                    config.routes == null ? 0 : config.routes.size());
-        } catch (IOException e) {
+            HubConfig loaded = parse(f);
+            publish(loaded);
+            source = f;
+            return loaded;
+        } catch (IOException | RuntimeException e) {
             logger.error("Failed to load hub config", e);
+            return null;
+        }
+    }
+
+    public static HubConfig parse(File f) throws IOException {
+        return new ObjectMapper(new YAMLFactory()).readValue(f, HubConfig.class);
+    }
+
+    /**
+     * Makes {@code cfg} the live config. The route table is compiled first, so a config whose
+     * routes do not compile is rejected before anything changes, and the message path switches
+     * from the old table to the new one in a single write.
+     */
+    public void publish(HubConfig cfg) {
+        RouteTable table = RouteTable.compile(cfg.routes);
+        snapshot.updateAndGet(cur -> new Snapshot(cfg, table, cur.version + 1));
+        sessionRegistry.setOutgoingNames(outgoingNames(cfg));
+        outgoingConnector.setOutgoing(cfg.outgoing);
+        logger.info("Loaded hub config with {} incoming, {} outgoing, {} routes",
+                cfg.incoming == null ? 0 : cfg.incoming.size(),
+                cfg.outgoing == null ? 0 : cfg.outgoing.size(),
+                cfg.routes == null ? 0 : cfg.routes.size());
+    }
+
+    public HubConfig config() {
+        return snapshot.get().config;
+    }
+
+    /** Changes with every published config and every route edit. */
+    public long version() {
+        return snapshot.get().version;
+    }
+
+    /**
+     * Applies {@code edit} to a copy of the current rules and publishes the result as the next
+     * version. With {@code expectedVersion} >= 0 the edit only applies to that version, and -1
+     * is returned if the routes have moved on; otherwise a concurrent edit makes the edit run
+     * again on the newer rules. Exceptions from {@code edit} or from compiling propagate and
+     * leave the routes unchanged. Returns the new version.
+     */
+    public long editRoutes(long expectedVersion, Consumer<List<RouteConfig>> edit) {
+        while (true) {
+            Snapshot cur = snapshot.get();
+            if (expectedVersion >= 0 && cur.version != expectedVersion) return -1;
+            List<RouteConfig> rules = new ArrayList<>(cur.routeTable.rules());
+            edit.accept(rules);
+            HubConfig cfg = new HubConfig();
+            cfg.incoming = cur.config.incoming;
+            cfg.outgoing = cur.config.outgoing;
+            cfg.routes = rules;
+            Snapshot next = new Snapshot(cfg, RouteTable.compile(rules), cur.version + 1);
+            if (snapshot.compareAndSet(cur, next)) {
+                logger.info("Routes updated to version {} ({} rules)", next.version, rules.size());
+                scheduleWrite();
+                return next.version;
+            }
         }
     }
 
+    /**
+     * Writes the current config to its file, coalescing edits that arrive while a write is
+     * queued. Comments in the file are not preserved, so this only happens when enabled with
+     * {@code fixhub.config-persist}; otherwise route edits last until the next reload or restart.
+     */
+    private void scheduleWrite() {
+        File f = source;
+        if (!persist || f == null || !writePending.compareAndSet(false, true)) return;
+        writer.execute(() -> {
+            writePending.set(false);
+            Snapshot s = snapshot.get();
+            File tmp = new File(f.getPath() + ".tmp");
+            try {
+                new ObjectMapper(new YAMLFactory())
+                        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                        .writeValue(tmp, s.config);
+                Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.debug("Wrote routes version {} to {}", s.version, f.getPath());
+            } catch (IOException e) {
+                logger.error("Failed to write hub config to {}", f.getPath(), e);
+            }
+        });
+    }
+
+    private static Map<String, String> outgoingNames(HubConfig cfg) {
+        Map<String, String> names = new HashMap<>();
+        if (cfg.outgoing == null) return names;
+        for (OutgoingConfig oc : cfg.outgoing) {
+            if (oc.name == null) continue;
+            String compId = oc.targetCompID == null || oc.targetCompID.isBlank() ? oc.name : oc.targetCompID;
+            names.put(compId, oc.name);
+        }
+        return names;
+    }
+
     public List<RouteConfig> routes() {
-        return config.routes == null ? Collections.emptyList() : config.routes;
+        return snapshot.get().routeTable.rules();
+    }
+
+    public RouteTable routeTable() {
+        return snapshot.get().routeTable;
     }
 
-    public boolean route(Message message, SessionID incomingSession) {
-        if (config.routes == null || config.routes.isEmpty()) return false;
+    /**
+     * Match a message given in tag=value form. Uses a per-thread {@link FixTagView}, so apart from
+     * the caller's raw string nothing is allocated.
+     */
+    public RouteConfig match(CharSequence raw, SessionID incomingSession) {
+        RouteTable table = snapshot.get().routeTable;
+        TagSelector tags = table.conditionTags();
+        FixTagView view = tags.size() == 0 ? null : VIEW.get().wrap(raw, tags);
+        return table.match(view, incomingSession);
+    }
 
-        for (RouteConfig r : config.routes) {
-            boolean fromMatches = r.from == null || r.from.isBlank() || r.from.equals(incomingSession.getSenderCompID()) || r.from.equals(incomingSession.getTargetCompID());
-            if (!fromMatches) continue;
+    /**
+     * Every rule that sends the message: the first match, plus the later matches while the rules
+     * are multicast. See {@link RouteTable#matchAll}.
+     */
+    public List<RouteConfig> matchAll(CharSequence raw, SessionID incomingSession) {
+        RouteTable table = snapshot.get().routeTable;
+        TagSelector tags = table.conditionTags();
+        FixTagView view = tags.size() == 0 ? null : VIEW.get().wrap(raw, tags);
+        return table.matchAll(view, incomingSession);
+    }
 
-            if (r.conditionTag != null && r.conditionValue != null) {
-                try {
-                    String v = message.getString(r.conditionTag);
-                    if (!r.conditionValue.equals(v)) continue;
-                } catch (FieldNotFound e) {
-                    continue;
-                }
+    /** Distinct destinations of the given rules, in rule order. */
+    public static List<String> destinations(List<RouteConfig> rules) {
+        if (rules.size() == 1) return rules.get(0).destinations();
+        List<String> d = new ArrayList<>();
+        for (RouteConfig r : rules) {
+            for (String t : r.destinations()) {
+                if (!d.contains(t)) d.add(t);
             }
+        }
+        return d;
+    }
 
-            logger.info("Routing message from {} to {} via rule {}", incomingSession, r.to, r);
-            boolean sent = outgoingConnector.sendTo(r.to, message);
-            return sent;
+    /**
+     * Routes on the calling thread. Returns each destination with whether it took the message;
+     * empty if no rule matched.
+     */
+    public Map<String, Boolean> route(Message message, SessionID incomingSession) {
+        String raw = message.toString();
+        List<RouteConfig> rules = matchAll(raw, incomingSession);
+        if (rules.isEmpty()) {
+            logger.debug("No routing rule matched for incoming session {}", incomingSession);
+            return Map.of();
         }
 
-        logger.debug("No routing rule matched for incoming session {}", incomingSession);
-        return false;
+        List<String> destinations = destinations(rules);
+        logger.debug("Routing message from {} to {} via {}", incomingSession, destinations, rules);
+        if (destinations.size() == 1) {
+            return Map.of(destinations.get(0), outgoingConnector.sendTo(destinations.get(0), message));
+        }
+        return outgoingConnector.sendToAll(destinations, new PassthroughMessage(message, raw), null);
+    }
+
+    private static final class Snapshot {
+        final HubConfig config;
+        final RouteTable routeTable;
+        final long version;
+
+        Snapshot(HubConfig config, RouteTable routeTable, long version) {
+            this.config = config;
+            this.routeTable = routeTable;
+            this.version = version;
+        }
     }
 }
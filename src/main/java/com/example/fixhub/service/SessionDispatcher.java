@@ -0,0 +1,258 @@
+package com.example.fixhub.service;
+
+import com.example.fixhub.pipeline.BackpressurePolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import quickfix.SessionID;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which threads run the inbound application callbacks ({@code fixhub.threading.model}):
+ * <ul>
+ *   <li>{@code single}: a SocketAcceptor, so one QuickFIX/J thread serves every session of an
+ *   acceptor and callbacks run on it.</li>
+ *   <li>{@code per-session}: a ThreadedSocketAcceptor, so each session has its own platform
+ *   thread and callbacks run on it.</li>
+ *   <li>{@code virtual}: a SocketAcceptor for I/O, with callbacks handed to a per-session lane on
+ *   virtual threads. When the JVM has no virtual threads, the lanes run on a pool of
+ *   {@code fixhub.threading.pool-size} platform threads instead.</li>
+ * </ul>
+ * In the first two models the callback only hands the message to the routing pipeline, whose
+ * partitioned stages do the work. In the {@code virtual} model the lane takes the place of the
+ * stages: it ingests, routes and queues the session's messages itself, so a session's work runs
+ * on its own virtual thread rather than on a partition shared with other sessions.
+ * A lane runs at most one task at a time, in submission order, so each session's messages keep
+ * their order in every model. A lane holds at most {@code fixhub.pipeline.queue-capacity} tasks
+ * and applies {@code fixhub.pipeline.backpressure} when full, like a pipeline stage: BLOCK holds
+ * the QuickFIX/J thread that dispatches, so backpressure still reaches the session.
+ *
+ * <p>The acceptor type applies to per-entry acceptors and initiators. The shared acceptor
+ * ({@code fixhub.acceptor.mode: shared}) is a ThreadedSocketAcceptor in every model.
+ */
+@Component
+public class SessionDispatcher implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(SessionDispatcher.class);
+
+    public enum Model { SINGLE, PER_SESSION, VIRTUAL }
+
+    @Value("${fixhub.threading.model:single}")
+    private String modelName;
+
+    @Value("${fixhub.threading.pool-size:0}")
+    private int poolSize;
+
+    @Value("${fixhub.pipeline.queue-capacity:8192}")
+    private int laneCapacity = 8192;
+
+    @Value("${fixhub.pipeline.backpressure:BLOCK}")
+    private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+
+    private Model model;
+    private ExecutorService executor;
+    private boolean virtualThreads;
+
+    private final Map<SessionID, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        model = Model.valueOf(modelName.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        if (model != Model.VIRTUAL) {
+            logger.info("Session threading model: {}", model);
+            return;
+        }
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+        } catch (ReflectiveOperationException e) {
+            int n = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+            AtomicInteger seq = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(n, r -> {
+                Thread t = new Thread(r, "fixhub-session-" + seq.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+            logger.warn("Virtual threads are not available on this JVM; session lanes run on {} platform threads", n);
+        }
+        logger.info("Session threading model: {} ({})", model, virtualThreads ? "virtual threads" : "platform pool");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    public Model model() {
+        return model;
+    }
+
+    /**
+     * Whether per-entry acceptors and initiators should give every session its own QuickFIX/J
+     * thread. The shared acceptor always does.
+     */
+    public boolean threadedAcceptor() {
+        return model == Model.PER_SESSION;
+    }
+
+    /** Whether callbacks run on per-session lanes rather than on the QuickFIX/J thread. */
+    public boolean lanes() {
+        return executor != null;
+    }
+
+    /**
+     * Runs the task on the session's lane, or inline when the model keeps callbacks on the
+     * QuickFIX/J thread. Returns false if the lane was full and the task was rejected.
+     */
+    public boolean dispatch(SessionID sessionId, Runnable task) {
+        if (executor == null) {
+            task.run();
+            return true;
+        }
+        return lanes.computeIfAbsent(sessionId, k -> new Lane()).execute(task);
+    }
+
+    /** Drops the session's lane once it has nothing queued, e.g. after logout. */
+    public void release(SessionID sessionId) {
+        lanes.computeIfPresent(sessionId, (k, lane) -> lane.idle() ? null : lane);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("model", model.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        m.put("virtual_threads", virtualThreads);
+        m.put("lanes", lanes.size());
+        m.put("queued", queued.get());
+        m.put("running", running.get());
+        m.put("completed", completed.sum());
+        m.put("lane_capacity", laneCapacity);
+        m.put("backpressure", backpressure);
+        m.put("dropped", dropped.sum());
+        m.put("rejected", rejected.sum());
+        if (executor instanceof ThreadPoolExecutor) {
+            m.put("pool_size", ((ThreadPoolExecutor) executor).getPoolSize());
+        }
+        return m;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("fixhub.dispatch.lanes", lanes, Map::size)
+                .description("Sessions with a dispatch lane")
+                .register(registry);
+        Gauge.builder("fixhub.dispatch.queued", queued, AtomicLong::get)
+                .description("Application callbacks waiting on a session lane")
+                .register(registry);
+        Gauge.builder("fixhub.dispatch.running", running, AtomicInteger::get)
+                .description("Session lanes currently running on a thread")
+                .register(registry);
+        FunctionCounter.builder("fixhub.dispatch.completed", completed, LongAdder::sum)
+                .description("Application callbacks run on session lanes")
+                .register(registry);
+    }
+
+    /**
+     * Serial executor for one session: tasks run one at a time in submission order, each drain
+     * on whatever thread the shared executor provides.
+     */
+    private final class Lane {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // one permit per task queued or running; a session dispatches from one thread at a time
+        private final Semaphore space = new Semaphore(Math.max(laneCapacity, 1));
+
+        boolean execute(Runnable task) {
+            if (!space.tryAcquire() && !makeRoom()) {
+                rejected.increment();
+                return false;
+            }
+            tasks.add(task);
+            queued.incrementAndGet();
+            schedule();
+            return true;
+        }
+
+        private boolean makeRoom() {
+            switch (backpressure) {
+                case BLOCK:
+                    try {
+                        space.acquire();
+                        return true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                case DROP_OLDEST:
+                    while (!space.tryAcquire()) {
+                        if (tasks.poll() != null) {
+                            queued.decrementAndGet();
+                            dropped.increment();
+                            space.release();
+                        } else {
+                            // every permit is held by the running task
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        boolean idle() {
+            return tasks.isEmpty() && !scheduled.get();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            running.incrementAndGet();
+            try {
+                Runnable r;
+                while ((r = tasks.poll()) != null) {
+                    queued.decrementAndGet();
+                    try {
+                        r.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Session callback failed", e);
+                    } finally {
+                        space.release();
+                    }
+                    completed.increment();
+                }
+            } finally {
+                running.decrementAndGet();
+                scheduled.set(false);
+            }
+            // a task may have arrived after the last poll but before the flag was cleared
+            if (!tasks.isEmpty()) schedule();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.fixhub.service;
+
+import com.example.fixhub.metrics.HubMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import quickfix.Session;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Operator actions on FIX sessions: disconnect, logout, reset of the sequence numbers and
+ * setting the next sender and target sequence numbers. A single session is operated on the
+ * calling thread. A bulk operation picks sessions by CompID pattern and runs as a {@link Job}
+ * on a pool of {@code fixhub.sessions.operation-threads} threads, one task per session, so a
+ * slow disconnect on one session does not hold up the others. Only the session lookup takes
+ * the engine's lock, and only long enough to list the sessions.
+ *
+ * <p>Patterns are globs on the CompIDs, {@code *} for any run of characters and {@code ?} for one.
+ * The last {@link #MAX_JOBS} jobs are kept for their results.
+ */
+@Service
+public class SessionOperations {
+    private static final Logger logger = LoggerFactory.getLogger(SessionOperations.class);
+
+    static final int MAX_JOBS = 64;
+
+    public enum Action { DISCONNECT, LOGOUT, RESET, SEQNUMS }
+
+    private final FixEngineService engine;
+    private final HubMetrics metrics;
+
+    @Value("${fixhub.sessions.operation-threads:16}")
+    private int threads;
+
+    private ExecutorService pool;
+    private final AtomicLong jobIds = new AtomicLong();
+    private final NavigableMap<Long, Job> jobs = new ConcurrentSkipListMap<>();
+
+    public SessionOperations(FixEngineService engine, HubMetrics metrics) {
+        this.engine = engine;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger seq = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+            Thread t = new Thread(r, "fixhub-session-op-" + seq.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * What to do, and for a bulk operation on which sessions: {@code compId} matches either
+     * CompID, {@code sender} and {@code target} one each; all given patterns must match.
+     */
+    public static class Request {
+        public String action;
+        public String compId;
+        public String sender;
+        public String target;
+        public Integer nextSenderSeqNum;
+        public Integer nextTargetSeqNum;
+    }
+
+    public static Action action(String name) {
+        if (name == null) throw new IllegalArgumentException("action is required");
+        try {
+            return Action.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown action '" + name + "'");
+        }
+    }
+
+    /** Finds a session the hub serves, logged on or not, by its id as listed. */
+    public SessionID find(String sessionId) {
+        for (SessionID id : engine.allSessions()) {
+            if (id.toString().equals(sessionId)) return id;
+        }
+        return null;
+    }
+
+    /** Operates one session on the calling thread. */
+    public Map<String, Object> apply(SessionID id, Request req) {
+        Action action = action(req.action);
+        check(action, req);
+        return run(id, action, req);
+    }
+
+    /**
+     * Starts a bulk operation on every session matching the request's patterns and returns its
+     * job at once; the results fill in as the sessions are done.
+     */
+    public Job submit(Request req) {
+        Action action = action(req.action);
+        check(action, req);
+        if (blank(req.compId) && blank(req.sender) && blank(req.target)) {
+            throw new IllegalArgumentException("a compId, sender or target pattern is required");
+        }
+        Pattern compId = glob(req.compId);
+        Pattern sender = glob(req.sender);
+        Pattern target = glob(req.target);
+        List<SessionID> matched = new ArrayList<>();
+        for (SessionID id : engine.allSessions()) {
+            if (compId != null && !compId.matcher(id.getSenderCompID()).matches()
+                    && !compId.matcher(id.getTargetCompID()).matches()) continue;
+            if (sender != null && !sender.matcher(id.getSenderCompID()).matches()) continue;
+            if (target != null && !target.matcher(id.getTargetCompID()).matches()) continue;
+            matched.add(id);
+        }
+
+        Job job = new Job(jobIds.incrementAndGet(), action, matched.size());
+        jobs.put(job.id, job);
+        while (jobs.size() > MAX_JOBS) jobs.pollFirstEntry();
+        logger.info("Session job {}: {} on {} session(s)", job.id, action, matched.size());
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[matched.size()];
+        for (int i = 0; i < matched.size(); i++) {
+            SessionID id = matched.get(i);
+            tasks[i] = CompletableFuture.runAsync(() -> job.done(id, run(id, action, req)), pool);
+        }
+        CompletableFuture.allOf(tasks).whenComplete((v, e) -> {
+            job.finish();
+            logger.info("Session job {} finished in {} ms: {} ok, {} failed", job.id,
+                    job.finishedAt - job.startedAt, job.ok.get(), job.failed.get());
+        });
+        return job;
+    }
+
+    public Job job(long id) {
+        return jobs.get(id);
+    }
+
+    /** The kept jobs, newest first. */
+    public Collection<Job> jobs() {
+        return jobs.descendingMap().values();
+    }
+
+    private Map<String, Object> run(SessionID id, Action action, Request req) {
+        Map<String, Object> r = new LinkedHashMap<>();
+        Session session = Session.lookupSession(id);
+        if (session == null) {
+            r.put("status", "not_found");
+            return r;
+        }
+        try {
+            switch (action) {
+                case DISCONNECT:
+                    session.disconnect("Disconnected by operator", false);
+                    break;
+                case LOGOUT:
+                    session.logout("Logout requested by operator");
+                    break;
+                case RESET:
+                    session.reset();
+                    break;
+                case SEQNUMS:
+                    if (req.nextSenderSeqNum != null) session.setNextSenderMsgSeqNum(req.nextSenderSeqNum);
+                    if (req.nextTargetSeqNum != null) session.setNextTargetMsgSeqNum(req.nextTargetSeqNum);
+                    break;
+            }
+            r.put("status", "ok");
+            r.put("next_sender_seq_num", session.getExpectedSenderNum());
+            r.put("next_target_seq_num", session.getExpectedTargetNum());
+            metrics.sessionEvent("operator_" + action.name().toLowerCase(Locale.ROOT));
+            logger.info("Operator {} on {}", action, id);
+        } catch (Exception e) {
+            r.put("status", "error");
+            r.put("message", String.valueOf(e.getMessage()));
+            logger.warn("Operator {} on {} failed", action, id, e);
+        }
+        return r;
+    }
+
+    private static void check(Action action, Request req) {
+        if (action != Action.SEQNUMS) return;
+        if (req.nextSenderSeqNum == null && req.nextTargetSeqNum == null) {
+            throw new IllegalArgumentException("nextSenderSeqNum or nextTargetSeqNum is required");
+        }
+        if ((req.nextSenderSeqNum != null && req.nextSenderSeqNum < 1)
+                || (req.nextTargetSeqNum != null && req.nextTargetSeqNum < 1)) {
+            throw new IllegalArgumentException("sequence numbers start at 1");
+        }
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static Pattern glob(String glob) {
+        if (blank(glob)) return null;
+        StringBuilder re = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.trim().toCharArray()) {
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) re.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+            re.append(c == '*' ? ".*" : ".");
+        }
+        if (literal.length() > 0) re.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(re.toString());
+    }
+
+    /** A bulk operation and the result of each session done so far. */
+    public static final class Job {
+        final long id;
+        final Action action;
+        final int total;
+        final long startedAt = System.currentTimeMillis();
+        volatile long finishedAt;
+        private final Map<String, Object> results = new ConcurrentHashMap<>();
+        private final AtomicInteger ok = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        Job(long id, Action action, int total) {
+            this.id = id;
+            this.action = action;
+            this.total = total;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public boolean finished() {
+            return finishedAt != 0;
+        }
+
+        private void done(SessionID session, Map<String, Object> result) {
+            results.put(session.toString(), result);
+            if ("ok".equals(result.get("status"))) ok.incrementAndGet();
+            else failed.incrementAndGet();
+        }
+
+        private void finish() {
+            finishedAt = System.currentTimeMillis();
+        }
+
+        /** The job's progress; with {@code details} also the result of each session done so far. */
+        public Map<String, Object> snapshot(boolean details) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", id);
+            m.put("action", action.name().toLowerCase(Locale.ROOT));
+            m.put("state", finished() ? "done" : "running");
+            m.put("sessions", total);
+            m.put("ok", ok.get());
+            m.put("failed", failed.get());
+            m.put("started_at", startedAt);
+            if (finished()) m.put("elapsed_ms", finishedAt - startedAt);
+            if (details) m.put("results", new TreeMap<>(results));
+            return m;
+        }
+    }
+}
@@ -1,25 +1,222 @@
 package com.example.fixhub.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import quickfix.Session;
 import quickfix.SessionID;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
+/**
+ * Logged-on sessions, indexed by SenderCompID, TargetCompID and outgoing name so the send path
+ * can resolve a destination with a single map lookup.
+ *
+ * <p>The registry is an immutable, versioned {@link Snapshot}. Readers get the current one with a
+ * single volatile read and never lock or copy. A logon, logout or new outgoing name mapping
+ * builds the next snapshot and swaps it in with a compare-and-set; sessions come and go rarely
+ * next to the send rate, so the indexes are rebuilt on each change rather than kept concurrent.
+ *
+ * <p>{@link Listener}s are told of each logon and logout after the swap, on the thread that made
+ * the change, together with the snapshot it produced. Changes from different threads may be
+ * reported out of order; the snapshot version tells which is newer.
+ */
 @Component
 public class SessionRegistry {
-    private final Set<SessionID> sessions = ConcurrentHashMap.newKeySet();
+    private static final Logger logger = LoggerFactory.getLogger(SessionRegistry.class);
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Logon and logout events. Called on the FIX session's thread, so keep them short. */
+    public interface Listener {
+        default void onLogon(Session session, Snapshot snapshot) {
+        }
+
+        default void onLogout(SessionID id, Snapshot snapshot) {
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
 
     public void add(SessionID id) {
-        sessions.add(id);
+        Session session = Session.lookupSession(id);
+        if (session != null) add(session);
+    }
+
+    public void add(Session session) {
+        SessionID id = session.getSessionID();
+        Snapshot next = update(s -> s.sessions.get(id) == session ? null : s.with(session));
+        if (next == null) return;
+        for (Listener l : listeners) {
+            try {
+                l.onLogon(session, next);
+            } catch (RuntimeException e) {
+                logger.warn("Session listener failed on logon of {}", id, e);
+            }
+        }
     }
 
     public void remove(SessionID id) {
-        sessions.remove(id);
+        Snapshot next = update(s -> s.sessions.containsKey(id) ? s.without(id) : null);
+        if (next == null) return;
+        for (Listener l : listeners) {
+            try {
+                l.onLogout(id, next);
+            } catch (RuntimeException e) {
+                logger.warn("Session listener failed on logout of {}", id, e);
+            }
+        }
+    }
+
+    /**
+     * Replace the TargetCompID to outgoing name mapping and re-index the live sessions.
+     */
+    public void setOutgoingNames(Map<String, String> targetCompIdToName) {
+        Map<String, String> names = Map.copyOf(targetCompIdToName);
+        update(s -> s.withOutgoingNames(names));
+    }
+
+    /** Applies the change to the current snapshot until the swap wins; a null change is none. */
+    private Snapshot update(UnaryOperator<Snapshot> change) {
+        while (true) {
+            Snapshot prev = current.get();
+            Snapshot next = change.apply(prev);
+            if (next == null) return null;
+            if (current.compareAndSet(prev, next)) return next;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public long version() {
+        return current.get().version;
     }
 
+    /**
+     * Resolve a destination by outgoing name, then TargetCompID, then SenderCompID.
+     */
+    public Session find(String destination) {
+        List<Session> l = candidates(destination);
+        return l.isEmpty() ? null : l.get(0);
+    }
+
+    /**
+     * All logged-on sessions for a destination, resolved like {@link #find}. The list is
+     * immutable and never null.
+     */
+    public List<Session> candidates(String destination) {
+        return current.get().candidates(destination);
+    }
+
+    /** The logged-on sessions of the current snapshot; immutable, it does not follow later changes. */
     public Set<SessionID> getSessions() {
-        return Collections.unmodifiableSet(sessions);
+        return current.get().ids;
+    }
+
+    /**
+     * The registry at one version. Everything in it is immutable, so it can be held and read
+     * from any thread while the registry moves on.
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, new LinkedHashMap<>(), Map.of());
+
+        private final long version;
+        private final Map<SessionID, Session> sessions;
+        private final Set<SessionID> ids;
+        private final List<SessionID> list;
+        private final Map<String, String> outgoingNames;
+        private final Map<String, List<Session>> bySender;
+        private final Map<String, List<Session>> byTarget;
+        private final Map<String, List<Session>> byName;
+
+        // sessions is owned by the snapshot from here on; its order is logon order
+        private Snapshot(long version, LinkedHashMap<SessionID, Session> sessions, Map<String, String> outgoingNames) {
+            this.version = version;
+            this.sessions = Collections.unmodifiableMap(sessions);
+            this.ids = Collections.unmodifiableSet(sessions.keySet());
+            this.list = List.copyOf(sessions.keySet());
+            this.outgoingNames = outgoingNames;
+            Map<String, List<Session>> sender = new HashMap<>();
+            Map<String, List<Session>> target = new HashMap<>();
+            Map<String, List<Session>> name = new HashMap<>();
+            for (Session s : sessions.values()) {
+                SessionID id = s.getSessionID();
+                sender.computeIfAbsent(id.getSenderCompID(), k -> new ArrayList<>(1)).add(s);
+                target.computeIfAbsent(id.getTargetCompID(), k -> new ArrayList<>(1)).add(s);
+                String n = outgoingNames.get(id.getTargetCompID());
+                if (n != null) name.computeIfAbsent(n, k -> new ArrayList<>(1)).add(s);
+            }
+            this.bySender = freeze(sender);
+            this.byTarget = freeze(target);
+            this.byName = freeze(name);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public int size() {
+            return sessions.size();
+        }
+
+        public boolean contains(SessionID id) {
+            return sessions.containsKey(id);
+        }
+
+        public Session get(SessionID id) {
+            return sessions.get(id);
+        }
+
+        /** The session ids in logon order. */
+        public List<SessionID> sessionIds() {
+            return list;
+        }
+
+        /** See {@link SessionRegistry#candidates}. */
+        public List<Session> candidates(String destination) {
+            List<Session> l = byName.get(destination);
+            if (l == null) l = byTarget.get(destination);
+            if (l == null) l = bySender.get(destination);
+            return l == null ? List.of() : l;
+        }
+
+        private Snapshot with(Session session) {
+            LinkedHashMap<SessionID, Session> next = new LinkedHashMap<>(sessions);
+            next.put(session.getSessionID(), session);
+            return new Snapshot(version + 1, next, outgoingNames);
+        }
+
+        private Snapshot without(SessionID id) {
+            LinkedHashMap<SessionID, Session> next = new LinkedHashMap<>(sessions);
+            next.remove(id);
+            return new Snapshot(version + 1, next, outgoingNames);
+        }
+
+        private Snapshot withOutgoingNames(Map<String, String> names) {
+            return new Snapshot(version + 1, new LinkedHashMap<>(sessions), names);
+        }
+
+        private static Map<String, List<Session>> freeze(Map<String, List<Session>> index) {
+            index.replaceAll((k, l) -> List.copyOf(l));
+            return Map.copyOf(index);
+        }
     }
 }
@@ -0,0 +1,240 @@
+package com.example.fixhub.service;
+
+import com.example.fixhub.store.SessionStoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Acceptor;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DefaultMessageFactory;
+import quickfix.DefaultSessionFactory;
+import quickfix.FieldConvertError;
+import quickfix.LogFactory;
+import quickfix.MessageFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.SLF4JLogFactory;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.ThreadedSocketAcceptor;
+import quickfix.mina.acceptor.AcceptorSessionProvider;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One acceptor for all incoming entries and connections. It is always a
+ * {@link ThreadedSocketAcceptor}, whatever {@code fixhub.threading.model} says: each session gets its
+ * own processing thread, and every session shares the acceptor's I/O threads, so there are no
+ * per-entry pools and sessions run in parallel. With a single session thread, every connection
+ * of the hub would be served one message at a time.
+ *
+ * <p>Entries are merged into a single settings object, and each session keeps the store factory
+ * of the entry it came from. An entry added while the acceptor runs becomes dynamic sessions on
+ * the ports already bound. Ports are bound at start, so an entry that needs a port the running
+ * acceptor does not listen on is refused rather than restarting the acceptor under every other
+ * session; it is taken on the next start of the hub.
+ *
+ * <p>A removed entry's logged-on sessions are sent a Logout and stay in the acceptor, refusing new
+ * logons, until the engine service {@link #drop}s them once the logout is done; a session added
+ * again in the meantime is created when its predecessor is dropped. Not thread-safe: the engine
+ * service calls it under its lock.
+ */
+class SharedAcceptor {
+    private static final Logger logger = LoggerFactory.getLogger(SharedAcceptor.class);
+
+    private final Application application;
+    private final MessageFactory messageFactory = new DefaultMessageFactory();
+    private final SessionStoreFactory stores = new SessionStoreFactory();
+
+    private final Map<String, List<SessionID>> entries = new LinkedHashMap<>();
+    // each session's settings including its file's defaults, merged into one settings object at start
+    private final Map<SessionID, Properties> sessionSettings = new LinkedHashMap<>();
+    private final Map<SessionID, InetSocketAddress> addresses = new HashMap<>();
+    private final Set<InetSocketAddress> bound = new HashSet<>();
+    // sessions of removed entries that are logging out, still in the running acceptor; read by
+    // the session provider on the I/O threads
+    private final Set<SessionID> leaving = ConcurrentHashMap.newKeySet();
+    private ThreadedSocketAcceptor acceptor;
+    private SessionSettings settings;
+    private LogFactory logFactory;
+
+    SharedAcceptor(Application application) {
+        this.application = application;
+    }
+
+    boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    boolean isRunning() {
+        return acceptor != null;
+    }
+
+    Set<SessionID> sessions() {
+        return addresses.keySet();
+    }
+
+    /**
+     * Adds the sessions of an entry. Returns false, adding none of them, if the acceptor runs
+     * and the entry needs a port it does not listen on.
+     */
+    boolean add(String key, SessionSettings entrySettings, MessageStoreFactory storeFactory)
+            throws ConfigError, FieldConvertError {
+        Map<SessionID, InetSocketAddress> wanted = new LinkedHashMap<>();
+        for (Iterator<SessionID> it = entrySettings.sectionIterator(); it.hasNext(); ) {
+            SessionID sid = it.next();
+            if (addresses.containsKey(sid)) {
+                logger.warn("Session {} of '{}' is already served by the shared acceptor; skipping", sid, key);
+                continue;
+            }
+            InetSocketAddress address = address(entrySettings, sid);
+            if (acceptor != null && !bound.contains(address)) {
+                logger.error("Session {} of '{}' needs {}, which the running shared acceptor does not listen on;"
+                        + " the entry is not added until the hub is restarted", sid, key, address);
+                return false;
+            }
+            wanted.put(sid, address);
+        }
+
+        List<SessionID> ids = new ArrayList<>(wanted.keySet());
+        for (Map.Entry<SessionID, InetSocketAddress> e : wanted.entrySet()) {
+            SessionID sid = e.getKey();
+            Properties p = entrySettings.getSessionProperties(sid, true);
+            sessionSettings.put(sid, p);
+            addresses.put(sid, e.getValue());
+            stores.register(sid, storeFactory);
+
+            if (acceptor == null || leaving.contains(sid)) continue;
+            open(sid);
+            logger.info("Added session {} of '{}' to the shared acceptor", sid, key);
+        }
+        entries.put(key, ids);
+        return true;
+    }
+
+    /**
+     * Removes the sessions of an entry. Those not logged on are dropped at once; the others are
+     * sent a Logout and returned, for the caller to {@link #drop} when their logout is done.
+     * Returns null if there is no such entry.
+     */
+    List<SessionID> remove(String key) {
+        List<SessionID> ids = entries.remove(key);
+        if (ids == null) return null;
+        List<SessionID> loggingOut = new ArrayList<>();
+        for (SessionID sid : ids) {
+            addresses.remove(sid);
+            stores.unregister(sid);
+            sessionSettings.remove(sid);
+            if (acceptor == null) continue;
+            Session session = Session.lookupSession(sid);
+            if (session != null && session.isLoggedOn()) {
+                session.logout("Connection removed");
+                leaving.add(sid);
+                loggingOut.add(sid);
+            } else {
+                acceptor.removeDynamicSession(sid);
+            }
+        }
+        logger.info("Removed {} session(s) of '{}' from the shared acceptor, {} logging out", ids.size(), key, loggingOut.size());
+        return loggingOut;
+    }
+
+    /**
+     * Takes sessions returned by {@link #remove} out of the acceptor, logged out or not. A session
+     * whose entry was added again meanwhile is then created afresh from the new entry's settings.
+     */
+    void drop(List<SessionID> ids) {
+        for (SessionID sid : ids) {
+            // gone already if the acceptor was stopped in the meantime
+            if (!leaving.remove(sid) || acceptor == null) continue;
+            Session session = Session.lookupSession(sid);
+            if (session != null && session.isLoggedOn()) logger.warn("Session {} did not finish its logout; dropping it", sid);
+            acceptor.removeDynamicSession(sid);
+            if (!addresses.containsKey(sid)) continue;
+            try {
+                open(sid);
+                logger.info("Re-created session {} in the shared acceptor", sid);
+            } catch (ConfigError e) {
+                logger.error("Failed to re-create session {} in the shared acceptor", sid, e);
+            }
+        }
+    }
+
+    private void open(SessionID sid) throws ConfigError {
+        put(settings, sid, sessionSettings.get(sid));
+        Session session = new DefaultSessionFactory(application, stores, logFactory, messageFactory)
+                .create(sid, settings);
+        acceptor.addDynamicSession(session);
+    }
+
+    void start() throws ConfigError {
+        if (acceptor != null) return;
+        if (addresses.isEmpty()) {
+            logger.info("No sessions for the shared acceptor yet; it starts with the first entry");
+            return;
+        }
+        settings = new SessionSettings();
+        for (Map.Entry<SessionID, Properties> e : sessionSettings.entrySet()) put(settings, e.getKey(), e.getValue());
+        logFactory = new SLF4JLogFactory(settings);
+        ThreadedSocketAcceptor acc = new ThreadedSocketAcceptor(application, stores, settings, logFactory, messageFactory);
+        // look sessions up at logon time, so sessions added later are found on their port
+        for (InetSocketAddress address : new HashSet<>(addresses.values())) {
+            acc.setSessionProvider(address, provider(address));
+        }
+        acc.start();
+        acceptor = acc;
+        bound.clear();
+        bound.addAll(addresses.values());
+        logger.info("Shared ThreadedSocketAcceptor started with {} session(s) on {} port(s)", addresses.size(), bound.size());
+    }
+
+    void stop() {
+        if (acceptor == null) return;
+        try {
+            acceptor.stop();
+            logger.info("Shared acceptor stopped");
+        } catch (Exception e) {
+            logger.warn("Error stopping shared acceptor", e);
+        }
+        acceptor = null;
+        bound.clear();
+        leaving.clear();
+    }
+
+    /** Stops and forgets all entries. */
+    void clear() {
+        stop();
+        for (SessionID sid : addresses.keySet()) stores.unregister(sid);
+        entries.clear();
+        addresses.clear();
+        sessionSettings.clear();
+    }
+
+    private static void put(SessionSettings target, SessionID sid, Properties p) {
+        for (String name : p.stringPropertyNames()) target.setString(sid, name, p.getProperty(name));
+    }
+
+    private AcceptorSessionProvider provider(InetSocketAddress address) {
+        return (sessionID, connector) -> {
+            Session s = connector.getSessionMap().get(sessionID);
+            return s != null && !leaving.contains(sessionID) && address.equals(addresses.get(sessionID)) ? s : null;
+        };
+    }
+
+    private static InetSocketAddress address(SessionSettings s, SessionID sid) throws ConfigError, FieldConvertError {
+        int port = (int) s.getLong(sid, Acceptor.SETTING_SOCKET_ACCEPT_PORT);
+        return s.isSetting(sid, Acceptor.SETTING_SOCKET_ACCEPT_ADDRESS)
+                ? new InetSocketAddress(s.getString(sid, Acceptor.SETTING_SOCKET_ACCEPT_ADDRESS), port)
+                : new InetSocketAddress(port);
+    }
+}
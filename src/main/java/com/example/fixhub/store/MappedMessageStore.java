@@ -0,0 +1,230 @@
+package com.example.fixhub.store;
+
+import quickfix.CharsetSupport;
+import quickfix.MessageStore;
+import quickfix.SessionID;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * Message store backed by two memory-mapped files per session: a small header with the sequence
+ * numbers and creation time, and an append-only body of sent messages. Storing a message or
+ * bumping a sequence number is a write into the mapping, not a system call; when the data is
+ * forced to disk depends on the {@link SyncMode}.
+ *
+ * <p>Body records are {@code [length][generation][sequence][bytes]}. The length is written last
+ * and {@link #reset()} bumps the generation, so recovery stops at the first torn record or at
+ * records left over from before a reset.
+ */
+class MappedMessageStore implements MessageStore, Closeable {
+
+    private static final int MAGIC = 0x46485331; // "FHS1"
+
+    private static final int H_MAGIC = 0;
+    private static final int H_GENERATION = 4;
+    private static final int H_CREATION = 8;
+    private static final int H_SENDER = 16;
+    private static final int H_TARGET = 20;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int RECORD_HEADER = 12;
+
+    private final SessionID sessionID;
+    private final SyncMode sync;
+    private final Consumer<MappedMessageStore> onClose;
+    private final Charset charset = CharsetSupport.getCharsetInstance();
+
+    private final FileChannel headerChannel;
+    private final FileChannel bodyChannel;
+    private final MappedByteBuffer header;
+    private volatile MappedByteBuffer body;
+
+    private final Map<Integer, Integer> offsets = new HashMap<>();
+    private int position;
+    private int generation;
+    private volatile boolean dirty;
+
+    MappedMessageStore(SessionID sessionID, Path headerFile, Path bodyFile, int initialMapBytes, SyncMode sync,
+                       Consumer<MappedMessageStore> onClose) throws IOException {
+        this.sessionID = sessionID;
+        this.sync = sync;
+        this.onClose = onClose;
+        if (headerFile.getParent() != null) Files.createDirectories(headerFile.getParent());
+        headerChannel = FileChannel.open(headerFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        bodyChannel = FileChannel.open(bodyFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = headerChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        body = bodyChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialMapBytes, (int) Math.min(bodyChannel.size(), Integer.MAX_VALUE)));
+
+        if (header.getInt(H_MAGIC) != MAGIC) {
+            header.putInt(H_MAGIC, MAGIC);
+            writeFresh(1);
+        } else {
+            generation = header.getInt(H_GENERATION);
+            recover();
+        }
+    }
+
+    private void writeFresh(int gen) {
+        generation = gen;
+        header.putInt(H_GENERATION, gen);
+        header.putLong(H_CREATION, System.currentTimeMillis());
+        header.putInt(H_SENDER, 1);
+        header.putInt(H_TARGET, 1);
+        body.putInt(0, 0);
+        offsets.clear();
+        position = 0;
+        header.force();
+        body.force(0, 4);
+    }
+
+    private void recover() {
+        MappedByteBuffer b = body;
+        int pos = 0;
+        while (pos + RECORD_HEADER <= b.capacity()) {
+            int len = b.getInt(pos);
+            if (len <= 0 || b.getInt(pos + 4) != generation || (long) pos + RECORD_HEADER + len > b.capacity()) break;
+            offsets.put(b.getInt(pos + 8), pos);
+            pos += RECORD_HEADER + len;
+        }
+        position = pos;
+    }
+
+    @Override
+    public synchronized boolean set(int sequence, String message) throws IOException {
+        byte[] bytes = message.getBytes(charset);
+        int size = RECORD_HEADER + bytes.length;
+        ensureCapacity((long) position + size + 4);
+        MappedByteBuffer b = body;
+        int start = position;
+        b.putInt(start, 0);
+        b.putInt(start + 4, generation);
+        b.putInt(start + 8, sequence);
+        b.put(start + RECORD_HEADER, bytes);
+        b.putInt(start + size, 0);
+        b.putInt(start, bytes.length);
+        offsets.put(sequence, start);
+        position = start + size;
+        if (sync == SyncMode.ALWAYS) {
+            b.force(start, size + 4);
+        } else {
+            dirty = true;
+        }
+        return true;
+    }
+
+    private void ensureCapacity(long needed) throws IOException {
+        if (needed <= body.capacity()) return;
+        if (needed > Integer.MAX_VALUE) throw new IOException("Message store for " + sessionID + " is full");
+        long size = Math.min(Math.max((long) body.capacity() * 2, needed), Integer.MAX_VALUE);
+        body.force();
+        body = bodyChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    @Override
+    public synchronized void get(int startSequence, int endSequence, Collection<String> messages) {
+        MappedByteBuffer b = body;
+        for (int seq = startSequence; seq <= endSequence; seq++) {
+            Integer off = offsets.get(seq);
+            if (off == null) continue;
+            byte[] bytes = new byte[b.getInt(off)];
+            b.get(off + RECORD_HEADER, bytes);
+            messages.add(new String(bytes, charset));
+        }
+    }
+
+    @Override
+    public int getNextSenderMsgSeqNum() {
+        return header.getInt(H_SENDER);
+    }
+
+    @Override
+    public int getNextTargetMsgSeqNum() {
+        return header.getInt(H_TARGET);
+    }
+
+    @Override
+    public synchronized void setNextSenderMsgSeqNum(int next) {
+        header.putInt(H_SENDER, next);
+        headerWritten();
+    }
+
+    @Override
+    public synchronized void setNextTargetMsgSeqNum(int next) {
+        header.putInt(H_TARGET, next);
+        headerWritten();
+    }
+
+    @Override
+    public synchronized void incrNextSenderMsgSeqNum() {
+        setNextSenderMsgSeqNum(getNextSenderMsgSeqNum() + 1);
+    }
+
+    @Override
+    public synchronized void incrNextTargetMsgSeqNum() {
+        setNextTargetMsgSeqNum(getNextTargetMsgSeqNum() + 1);
+    }
+
+    private void headerWritten() {
+        if (sync == SyncMode.ALWAYS) {
+            header.force();
+        } else {
+            dirty = true;
+        }
+    }
+
+    @Override
+    public Date getCreationTime() {
+        return new Date(header.getLong(H_CREATION));
+    }
+
+    // part of MessageStore in newer QuickFIX/J releases
+    public Calendar getCreationTimeCalendar() {
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        c.setTimeInMillis(header.getLong(H_CREATION));
+        return c;
+    }
+
+    @Override
+    public synchronized void reset() {
+        writeFresh(generation + 1);
+    }
+
+    /** State lives in this process only, so there is nothing to reload. */
+    @Override
+    public void refresh() {
+    }
+
+    /**
+     * Forces pending writes to disk if anything changed since the last call. Runs on the group
+     * commit thread, outside the store lock, so the session is not held up by the flush.
+     */
+    void sync() {
+        if (!dirty) return;
+        dirty = false;
+        body.force();
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        onClose.accept(this);
+        dirty = true;
+        sync();
+        headerChannel.close();
+        bodyChannel.close();
+    }
+}
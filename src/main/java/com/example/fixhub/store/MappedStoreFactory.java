@@ -0,0 +1,55 @@
+package com.example.fixhub.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.FileStoreFactory;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.RuntimeError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+/**
+ * Creates {@link MappedMessageStore}s under the session's FileStorePath, next to where a
+ * FileStore would keep its files.
+ */
+class MappedStoreFactory implements MessageStoreFactory {
+    private static final Logger logger = LoggerFactory.getLogger(MappedStoreFactory.class);
+
+    private final SessionSettings settings;
+    private final SyncMode sync;
+    private final int initialMapBytes;
+    // stores the group commit thread flushes; only used in BATCH mode
+    private final Set<MappedMessageStore> batched;
+
+    MappedStoreFactory(SessionSettings settings, SyncMode sync, int initialMapBytes, Set<MappedMessageStore> batched) {
+        this.settings = settings;
+        this.sync = sync;
+        this.initialMapBytes = initialMapBytes;
+        this.batched = batched;
+    }
+
+    @Override
+    public MessageStore create(SessionID sessionID) {
+        try {
+            String dir = settings.isSetting(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH)
+                    ? settings.getString(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH)
+                    : "store";
+            String prefix = sessionID.toString().replaceAll("[^A-Za-z0-9._-]", "_");
+            Path base = Paths.get(dir);
+            MappedMessageStore store = new MappedMessageStore(sessionID,
+                    base.resolve(prefix + ".mheader"), base.resolve(prefix + ".mbody"),
+                    initialMapBytes, sync, batched::remove);
+            if (sync == SyncMode.BATCH) batched.add(store);
+            logger.info("Memory-mapped message store for {} in {} (sync={})", sessionID, base, sync);
+            return store;
+        } catch (IOException | quickfix.ConfigError | quickfix.FieldConvertError e) {
+            throw new RuntimeError(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.fixhub.store;
+
+import com.example.fixhub.config.StoreConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import quickfix.ConfigError;
+import quickfix.FileStoreFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionSettings;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the QuickFIX/J {@link MessageStoreFactory} for an incoming or connection entry and runs
+ * the group commit thread shared by all memory-mapped stores in batch sync mode.
+ */
+@Component
+public class MessageStoreProvider {
+    private static final Logger logger = LoggerFactory.getLogger(MessageStoreProvider.class);
+
+    private static final String FILE_STORE_SYNC = "FileStoreSync";
+
+    @Value("${fixhub.store.sync-interval-ms:10}")
+    private long syncIntervalMs;
+
+    @Value("${fixhub.store.initial-map-mb:16}")
+    private int initialMapMb;
+
+    private final Set<MappedMessageStore> batched = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService syncer;
+
+    @PostConstruct
+    public void start() {
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fixhub-store-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::syncAll, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        syncer.shutdownNow();
+        syncAll();
+    }
+
+    private void syncAll() {
+        for (MappedMessageStore s : batched) {
+            try {
+                s.sync();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to sync message store", e);
+            }
+        }
+    }
+
+    /**
+     * A null config, or one without a type, gives the FileStore QuickFIX/J would use by default.
+     * The file store has no group commit, so batch sync is treated as none for it.
+     */
+    public MessageStoreFactory factory(StoreConfig config, SessionSettings settings) throws ConfigError {
+        StoreType type = config == null || config.type == null ? StoreType.FILE : parse(StoreType.class, config.type);
+        SyncMode sync = config == null || config.sync == null ? null : parse(SyncMode.class, config.sync);
+        switch (type) {
+            case MEMORY:
+                return new MemoryStoreFactory();
+            case MMAP:
+                return new MappedStoreFactory(settings, sync == null ? SyncMode.BATCH : sync,
+                        (int) Math.min(Math.max(initialMapMb, 1) * 1024L * 1024, Integer.MAX_VALUE), batched);
+            default:
+                if (sync != null) settings.setString(FILE_STORE_SYNC, sync == SyncMode.ALWAYS ? "Y" : "N");
+                return new FileStoreFactory(settings);
+        }
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value) throws ConfigError {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigError("Unknown message store " + type.getSimpleName() + " '" + value + "'");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.fixhub.store;
+
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.RuntimeError;
+import quickfix.SessionID;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store factory for an acceptor whose sessions come from different config entries, each with
+ * its own store choice. Sessions are registered with their entry's factory before they are
+ * created.
+ */
+public class SessionStoreFactory implements MessageStoreFactory {
+    private final Map<SessionID, MessageStoreFactory> factories = new ConcurrentHashMap<>();
+
+    public void register(SessionID sessionID, MessageStoreFactory factory) {
+        factories.put(sessionID, factory);
+    }
+
+    public void unregister(SessionID sessionID) {
+        factories.remove(sessionID);
+    }
+
+    @Override
+    public MessageStore create(SessionID sessionID) {
+        MessageStoreFactory f = factories.get(sessionID);
+        if (f == null) throw new RuntimeError("No message store registered for " + sessionID);
+        return f.create(sessionID);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.fixhub.store;
+
+public enum StoreType {
+    /** QuickFIX/J FileStore: a write, and with FileStoreSync a sync, per message. */
+    FILE,
+    /** Memory-mapped header and body files per session, see {@link MappedMessageStore}. */
+    MMAP,
+    /** QuickFIX/J MemoryStore: nothing survives a restart, so resend requests after one get gap fills. */
+    MEMORY
+}
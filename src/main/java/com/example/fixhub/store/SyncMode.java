@@ -0,0 +1,13 @@
+package com.example.fixhub.store;
+
+/**
+ * When a store forces its writes to disk.
+ */
+public enum SyncMode {
+    /** Never explicitly; the OS writes dirty pages back. Survives a JVM crash, not a host crash. */
+    NONE,
+    /** Group commit: a background thread forces every changed store once per sync interval. */
+    BATCH,
+    /** Before the call that stored the message or sequence number returns. */
+    ALWAYS
+}
@@ -0,0 +1,119 @@
+package com.example.fixhub.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoder for the {@value #PROTOCOL} sub-protocol, one per connection. A frame carries a batch of
+ * events:
+ * <pre>
+ * frame  := 'F' 'H' version:u8 count:varint event*
+ * event  := time:varint type:ref sessionId:ref senderCompID:ref targetCompID:ref
+ *           messageType:ref direction:ref bodyLength:varint body:bytes
+ * ref    := varint v; v = id &lt;&lt; 1 | define
+ *           0 = null, 1 = literal (length:varint utf8) not kept,
+ *           odd = define id (length:varint utf8) and use it, even = use id
+ * </pre>
+ * The first event's time is epoch millis, each later one a zigzag delta to the previous event.
+ * The body is the raw FIX message in UTF-8 with its SOH separators. The string dictionary lives
+ * as long as the connection and is shared by both ends, so a CompID or MsgType costs one or two
+ * bytes after its first frame. It is capped at {@link #MAX_ENTRIES}; later strings go as literals.
+ *
+ * <p>Frames must reach the client in encoding order, which holds because a connection's frames
+ * are encoded and sent by its one drain at a time. The output buffer is reused, so each frame
+ * must be sent before the next is encoded; the blocking session send guarantees that.
+ */
+final class BinaryFrameEncoder {
+    static final String PROTOCOL = "fixhub.bin.v1";
+    static final int MAX_ENTRIES = 4096;
+    private static final int VERSION = 1;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private byte[] buf = new byte[16 * 1024];
+    private int len;
+
+    BinaryMessage encode(List<FIXMessageEvent> events) {
+        len = 0;
+        put('F');
+        put('H');
+        put(VERSION);
+        varint(events.size());
+        long last = 0;
+        for (int i = 0; i < events.size(); i++) {
+            FIXMessageEvent e = events.get(i);
+            if (i == 0) varint(e.timestamp);
+            else varint(zigzag(e.timestamp - last));
+            last = e.timestamp;
+            ref(e.type);
+            ref(e.sessionId);
+            ref(e.senderCompID);
+            ref(e.targetCompID);
+            ref(e.messageType);
+            ref(e.direction);
+            byte[] body = e.bodyBytes();
+            varint(body.length);
+            bytes(body);
+        }
+        return new BinaryMessage(ByteBuffer.wrap(buf, 0, len));
+    }
+
+    int dictionarySize() {
+        return dictionary.size();
+    }
+
+    private void ref(String s) {
+        if (s == null) {
+            varint(0);
+            return;
+        }
+        Integer id = dictionary.get(s);
+        if (id != null) {
+            varint((long) id << 1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (dictionary.size() < MAX_ENTRIES) {
+            id = dictionary.size() + 1;
+            dictionary.put(s, id);
+            varint((long) id << 1 | 1);
+        } else {
+            varint(1);
+        }
+        varint(b.length);
+        bytes(b);
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private void varint(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[len++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[len++] = (byte) v;
+    }
+
+    private void bytes(byte[] b) {
+        ensure(b.length);
+        System.arraycopy(b, 0, buf, len, b.length);
+        len += b.length;
+    }
+
+    private void put(int b) {
+        ensure(1);
+        buf[len++] = (byte) b;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.fixhub.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client send queue. Frames are written by a shared sender pool, at most one drain per client
+ * at a time. A client that cannot keep up is stepped down from full to sampled to summary frames
+ * instead of holding up the flusher or other clients, and is stepped back up once it has drained.
+ *
+ * <p>A client that negotiated {@value BinaryFrameEncoder#PROTOCOL} gets event frames in that
+ * encoding, built by its drain with the connection's string dictionary; summary, replay and
+ * control frames stay JSON text.
+ */
+class ClientChannel {
+    private static final Logger logger = LoggerFactory.getLogger(ClientChannel.class);
+
+    enum Mode { FULL, SAMPLED, SUMMARY }
+
+    private static final long RECOVER_AFTER_MILLIS = 1000;
+
+    final WebSocketSession session;
+    private final BlockingQueue<Frame> queue;
+    // journal backfill and control frames, sent ahead of live frames and exempt from the mode step-down
+    private final Queue<Frame> replay = new ConcurrentLinkedQueue<>();
+    private final int capacity;
+    private final int sampleEvery;
+    private final Executor sender;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // only touched by the drain, which runs one at a time
+    private final BinaryFrameEncoder binary;
+
+    volatile Subscription subscription = Subscription.ALL;
+
+    private volatile Mode mode = Mode.FULL;
+    private volatile long modeChangedAt = System.currentTimeMillis();
+    private long sampleCounter;
+
+    final LongAdder dropped = new LongAdder();
+
+    ClientChannel(WebSocketSession session, int capacity, int sampleEvery, Executor sender) {
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.sender = sender;
+        this.binary = BinaryFrameEncoder.PROTOCOL.equals(session.getAcceptedProtocol()) ? new BinaryFrameEncoder() : null;
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    boolean binary() {
+        return binary != null;
+    }
+
+    /**
+     * Called from the single flusher thread for every batch.
+     */
+    void offer(EventBatch batch) {
+        Subscription sub = subscription;
+        int events = batch.size(sub);
+        if (events == 0) return;
+        adjustMode();
+        Frame frame;
+        switch (mode) {
+            case SAMPLED:
+                if (sampleCounter++ % sampleEvery != 0) {
+                    dropped.add(events);
+                    return;
+                }
+                frame = events(batch, sub, events);
+                break;
+            case SUMMARY:
+                dropped.add(events);
+                frame = new Frame(batch.summary(sub), 0);
+                break;
+            default:
+                frame = events(batch, sub, events);
+        }
+        if (!queue.offer(frame)) {
+            dropped.add(frame.events);
+            downgrade();
+            return;
+        }
+        schedule();
+    }
+
+    private Frame events(EventBatch batch, Subscription sub, int events) {
+        return binary != null ? new Frame(batch.events(sub)) : new Frame(batch.frame(sub), events);
+    }
+
+    /**
+     * Queues journal frames for this client only. They are written by the same drain as live
+     * frames, so the two never interleave mid-frame.
+     */
+    void replay(List<TextMessage> frames) {
+        for (TextMessage m : frames) replay.add(new Frame(m, 0));
+        schedule();
+    }
+
+    /** Queues a small JSON frame, such as a session event, ahead of live frames. */
+    void control(TextMessage frame) {
+        replay.add(new Frame(frame, 0));
+        schedule();
+    }
+
+    private void adjustMode() {
+        int depth = queue.size();
+        if (depth >= capacity * 3 / 4) {
+            downgrade();
+        } else if (depth <= capacity / 4 && mode != Mode.FULL
+                && System.currentTimeMillis() - modeChangedAt >= RECOVER_AFTER_MILLIS) {
+            mode = mode == Mode.SUMMARY ? Mode.SAMPLED : Mode.FULL;
+            modeChangedAt = System.currentTimeMillis();
+            logger.info("WebSocket client {} recovered to {} mode", session.getId(), mode);
+        }
+    }
+
+    private void downgrade() {
+        if (mode == Mode.SUMMARY) return;
+        mode = mode == Mode.FULL ? Mode.SAMPLED : Mode.SUMMARY;
+        modeChangedAt = System.currentTimeMillis();
+        logger.info("WebSocket client {} is falling behind; switched to {} mode", session.getId(), mode);
+    }
+
+    private void schedule() {
+        if (draining.compareAndSet(false, true)) {
+            sender.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Frame f;
+            while ((f = next()) != null) {
+                if (!session.isOpen()) {
+                    replay.clear();
+                    queue.clear();
+                    return;
+                }
+                try {
+                    session.sendMessage(f.message != null ? f.message : binary.encode(f.batch));
+                } catch (Exception e) {
+                    dropped.add(f.events);
+                    logger.warn("Failed to send WebSocket message to session {}", session.getId(), e);
+                    // the encoder has added this frame's strings to its dictionary, which the
+                    // client never saw, so later frames would refer to entries it does not have
+                    if (f.batch != null) closeOutOfSync();
+                }
+            }
+        } finally {
+            draining.set(false);
+        }
+        // a frame may have been queued after the last poll but before the flag was cleared
+        if (!queue.isEmpty() || !replay.isEmpty()) schedule();
+    }
+
+    private void closeOutOfSync() {
+        try {
+            session.close(CloseStatus.SERVER_ERROR.withReason("binary dictionary out of sync"));
+        } catch (Exception e) {
+            logger.debug("Error closing WebSocket session {}", session.getId(), e);
+        }
+    }
+
+    private Frame next() {
+        Frame f = replay.poll();
+        return f != null ? f : queue.poll();
+    }
+
+    private static final class Frame {
+        final TextMessage message;
+        final List<FIXMessageEvent> batch;
+        final int events;
+
+        Frame(TextMessage message, int events) {
+            this.message = message;
+            this.batch = null;
+            this.events = events;
+        }
+
+        Frame(List<FIXMessageEvent> batch) {
+            this.message = null;
+            this.batch = batch;
+            this.events = batch.size();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.fixhub.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Events collected during one flush interval, split by subscription. An event is serialized to
+ * JSON only when a text client takes a frame containing it, and only once, into the flusher's
+ * reusable {@link EventEncoder} buffer; each subscription's frame is assembled from those bytes,
+ * and it and the summary are built at most once and shared by every client holding that
+ * subscription. The encoder is reset by the next batch, so frames must be taken before then.
+ * Binary clients take the subscription's event list instead and encode it themselves.
+ */
+class EventBatch {
+    private final ObjectMapper mapper;
+    private final EventEncoder encoder;
+    private final Map<Subscription, Slice> slices = new LinkedHashMap<>();
+    // where each matched event's JSON sits in the encoder buffer
+    private final int[] offsets;
+    private final int[] lengths;
+
+    EventBatch(List<FIXMessageEvent> events, SubscriptionIndex index, ObjectMapper mapper, EventEncoder encoder) {
+        this.mapper = mapper;
+        this.encoder = encoder;
+        this.offsets = new int[events.size()];
+        this.lengths = new int[events.size()];
+        List<List<Integer>> bySub = new ArrayList<>(index.size());
+        for (int s = 0; s < index.size(); s++) bySub.add(new ArrayList<>());
+
+        encoder.reset();
+        BitSet matched = new BitSet();
+        for (int i = 0; i < events.size(); i++) {
+            offsets[i] = -1;
+            index.match(events.get(i), matched);
+            if (matched.isEmpty()) continue;
+            for (int s = matched.nextSetBit(0); s >= 0; s = matched.nextSetBit(s + 1)) {
+                bySub.get(s).add(i);
+            }
+        }
+        for (int s = 0; s < index.size(); s++) {
+            List<Integer> idx = bySub.get(s);
+            if (idx.isEmpty()) continue;
+            slices.put(index.get(s), new Slice(events, idx));
+        }
+    }
+
+    /**
+     * Number of events the subscription receives from this batch.
+     */
+    int size(Subscription sub) {
+        Slice s = slices.get(sub);
+        return s == null ? 0 : s.indexes.size();
+    }
+
+    /** The subscription's events, for clients that encode their own frames. */
+    List<FIXMessageEvent> events(Subscription sub) {
+        Slice s = slices.get(sub);
+        if (s.matched == null) {
+            List<FIXMessageEvent> l = new ArrayList<>(s.indexes.size());
+            for (int i : s.indexes) l.add(s.events.get(i));
+            s.matched = l;
+        }
+        return s.matched;
+    }
+
+    TextMessage frame(Subscription sub) {
+        Slice s = slices.get(sub);
+        if (s.frame == null) {
+            for (int i : s.indexes) {
+                if (offsets[i] >= 0) continue;
+                offsets[i] = encoder.length();
+                encoder.event(s.events.get(i));
+                lengths[i] = encoder.length() - offsets[i];
+            }
+            int size = 1 + s.indexes.size();
+            for (int i : s.indexes) size += lengths[i];
+            byte[] out = new byte[size];
+            byte[] src = encoder.buffer();
+            int p = 0;
+            out[p++] = '[';
+            for (int k = 0; k < s.indexes.size(); k++) {
+                int i = s.indexes.get(k);
+                if (k > 0) out[p++] = ',';
+                System.arraycopy(src, offsets[i], out, p, lengths[i]);
+                p += lengths[i];
+            }
+            out[p] = ']';
+            s.frame = new TextMessage(out);
+        }
+        return s.frame;
+    }
+
+    TextMessage summary(Subscription sub) {
+        Slice s = slices.get(sub);
+        if (s.summary == null) {
+            Map<String, Integer> byType = new LinkedHashMap<>();
+            for (int i : s.indexes) byType.merge(String.valueOf(s.events.get(i).messageType), 1, Integer::sum);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("type", "summary");
+            m.put("events", s.indexes.size());
+            m.put("byMessageType", byType);
+            m.put("from", s.events.get(s.indexes.get(0)).timestamp);
+            m.put("to", s.events.get(s.indexes.get(s.indexes.size() - 1)).timestamp);
+            try {
+                s.summary = new TextMessage(mapper.writeValueAsString(m));
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to serialize summary", e);
+            }
+        }
+        return s.summary;
+    }
+
+    private static final class Slice {
+        final List<FIXMessageEvent> events;
+        final List<Integer> indexes;
+        List<FIXMessageEvent> matched;
+        TextMessage frame;
+        TextMessage summary;
+
+        Slice(List<FIXMessageEvent> events, List<Integer> indexes) {
+            this.events = events;
+            this.indexes = indexes;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.fixhub.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes {@link FIXMessageEvent}s as JSON straight into a growable UTF-8 byte buffer, without
+ * reflection or intermediate strings. The message body is escaped from the event's string as it
+ * is copied, which is the only time it is read. An encoder is reused from batch to batch by its
+ * owning thread and is not thread-safe.
+ */
+final class EventEncoder {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buf;
+    private int len;
+
+    EventEncoder() {
+        this(64 * 1024);
+    }
+
+    EventEncoder(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+    }
+
+    void reset() {
+        len = 0;
+    }
+
+    int length() {
+        return len;
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    /** A copy of {@code [offset, offset + length)}, for a frame that outlives the next reset. */
+    byte[] copy(int offset, int length) {
+        return Arrays.copyOfRange(buf, offset, offset + length);
+    }
+
+    /** Appends the events as one JSON array. */
+    void array(List<FIXMessageEvent> events) {
+        put('[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) put(',');
+            event(events.get(i));
+        }
+        put(']');
+    }
+
+    /** Appends one event as a JSON object, with the same fields Jackson would write. */
+    void event(FIXMessageEvent e) {
+        put('{');
+        field("type", e.type, true);
+        field("sessionId", e.sessionId, false);
+        field("senderCompID", e.senderCompID, false);
+        field("targetCompID", e.targetCompID, false);
+        field("messageType", e.messageType, false);
+        field("messageBody", e.messageBody, false);
+        name("timestamp", false);
+        number(e.timestamp);
+        field("direction", e.direction, false);
+        put('}');
+    }
+
+    private void field(String name, String value, boolean first) {
+        name(name, first);
+        if (value == null) ascii("null");
+        else string(value);
+    }
+
+    private void name(String name, boolean first) {
+        if (!first) put(',');
+        put('"');
+        ascii(name);
+        put('"');
+        put(':');
+    }
+
+    private void number(long v) {
+        ascii(Long.toString(v));
+    }
+
+    private void ascii(String s) {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) buf[len++] = (byte) s.charAt(i);
+    }
+
+    private void string(String s) {
+        // worst case per char is a 6 byte escape
+        ensure(s.length() * 6 + 2);
+        byte[] b = buf;
+        int p = len;
+        b[p++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') b[p++] = '\\';
+                b[p++] = (byte) c;
+            } else if (c < 0x20) {
+                b[p++] = '\\';
+                b[p++] = 'u';
+                b[p++] = '0';
+                b[p++] = '0';
+                b[p++] = HEX[c >> 4];
+                b[p++] = HEX[c & 0xF];
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[p++] = (byte) (0xF0 | (cp >> 18));
+                b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                // lone surrogates are written as '?', like String.getBytes(UTF_8)
+                if (Character.isSurrogate(c)) {
+                    b[p++] = '?';
+                    continue;
+                }
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[p++] = '"';
+        len = p;
+    }
+
+    private void put(char c) {
+        ensure(1);
+        buf[len++] = (byte) c;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.fixhub.websocket;
 
+import java.nio.charset.StandardCharsets;
+
 public class FIXMessageEvent {
     public String type; // "incoming" or "outgoing"
     public String sessionId;
@@ -10,6 +12,9 @@ public class FIXMessageEvent {
     public long timestamp;
     public String direction; // "FROM_CLIENT", "TO_CLIENT", "FROM_SERVER", "TO_SERVER"
 
+    // UTF-8 body for binary clients, encoded once and shared; racing encodes produce equal arrays
+    private volatile byte[] bodyBytes;
+
     public FIXMessageEvent() {
         this.timestamp = System.currentTimeMillis();
     }
@@ -25,4 +30,13 @@ public class FIXMessageEvent {
         this.messageBody = messageBody;
         this.direction = direction;
     }
+
+    byte[] bodyBytes() {
+        byte[] b = bodyBytes;
+        if (b == null) {
+            b = messageBody == null ? new byte[0] : messageBody.getBytes(StandardCharsets.UTF_8);
+            bodyBytes = b;
+        }
+        return b;
+    }
 }
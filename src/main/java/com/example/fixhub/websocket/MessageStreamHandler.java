@@ -1,58 +1,359 @@
 package com.example.fixhub.websocket;
 
+import com.example.fixhub.journal.JournalQuery;
+import com.example.fixhub.journal.JournalRecord;
+import com.example.fixhub.journal.MessageJournal;
+import com.example.fixhub.metrics.HubMetrics;
+import com.example.fixhub.service.SessionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import quickfix.Session;
+import quickfix.SessionID;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Streams FIX message events to browser clients. Events are buffered and flushed as JSON array
+ * frames every flush interval, or as soon as a full batch is pending, so each batch is serialized
+ * once regardless of the number of clients. Delivery goes through a per-client queue.
+ *
+ * <p>A client narrows its stream by sending a subscription, e.g.
+ * {@code {"action":"subscribe","compIds":["CLIENT"],"msgTypes":["D","8"],"tags":{"55":"IBM"}}};
+ * {@code {"action":"unsubscribe"}} goes back to receiving everything.
+ *
+ * <p>{@code {"action":"replay","from":1700000000000,"limit":500}} backfills a client from the
+ * message journal: up to {@code limit} of the latest inbound messages in the window that match
+ * the client's current subscription, sent oldest first in the usual array frames and followed by
+ * a {@code {"type":"replay_done"}} frame.
+ *
+ * <p>A client that offers the {@value BinaryFrameEncoder#PROTOCOL} sub-protocol receives live
+ * events as compact binary frames (see {@link BinaryFrameEncoder}) instead of JSON arrays; it
+ * still sends its requests as JSON text. Without a sub-protocol the stream is JSON.
+ *
+ * <p>FIX session logons and logouts are pushed to every client as they happen, e.g.
+ * {@code {"type":"session","event":"logon","sessionId":"FIX.4.4:CLIENT->FIXHUB","version":7,"sessions":3}},
+ * where {@code version} is the session registry version and {@code sessions} the number logged on.
+ */
 @Component
-public class MessageStreamHandler extends TextWebSocketHandler {
+public class MessageStreamHandler extends TextWebSocketHandler implements SubProtocolCapable, SessionRegistry.Listener {
     
     private static final Logger logger = LoggerFactory.getLogger(MessageStreamHandler.class);
-    private static final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    private final Map<String, ClientChannel> clients = new ConcurrentHashMap<>();
+    private volatile SubscriptionIndex index = SubscriptionIndex.EMPTY;
+
+    private static final int MAX_REPLAY = 10_000;
+
+    @Autowired(required = false)
+    private HubMetrics metrics;
+
+    @Autowired(required = false)
+    private MessageJournal journal;
+
+    @Autowired(required = false)
+    private SessionRegistry sessionRegistry;
+
+    @Value("${fixhub.websocket.replay-limit:500}")
+    private int replayLimit;
+
+    @Value("${fixhub.websocket.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${fixhub.websocket.batch-size:256}")
+    private int batchSize;
+
+    @Value("${fixhub.websocket.client-queue-frames:64}")
+    private int clientQueueFrames;
+
+    @Value("${fixhub.websocket.sample-every:10}")
+    private int sampleEvery;
+
+    @Value("${fixhub.websocket.sender-threads:2}")
+    private int senderThreads;
+
+    private BlockingQueue<FIXMessageEvent> pending;
+    private ScheduledExecutorService flusher;
+    private ExecutorService sender;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // owned by whichever thread runs flush(); flushes never overlap
+    private final EventEncoder encoder = new EventEncoder();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder sessionEvents = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        pending = new ArrayBlockingQueue<>(Math.max(batchSize, 1) * 16);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "fixhub-ws-flush"));
+        sender = Executors.newFixedThreadPool(Math.max(senderThreads, 1), r -> daemon(r, "fixhub-ws-send"));
+        flusher.scheduleAtFixedRate(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (sessionRegistry != null) sessionRegistry.addListener(this);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sessionRegistry != null) sessionRegistry.removeListener(this);
+        flusher.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(BinaryFrameEncoder.PROTOCOL);
+    }
+
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        logger.info("WebSocket connection established: {}", session.getId());
-        sessions.add(session);
+        logger.info("WebSocket connection established: {} (protocol={})", session.getId(),
+                session.getAcceptedProtocol() == null || session.getAcceptedProtocol().isEmpty() ? "json" : session.getAcceptedProtocol());
+        clients.put(session.getId(), new ClientChannel(session, clientQueueFrames, sampleEvery, sender));
+        rebuildIndex();
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         logger.info("WebSocket connection closed: {}", session.getId());
-        sessions.remove(session);
+        clients.remove(session.getId());
+        rebuildIndex();
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        ClientChannel c = clients.get(session.getId());
+        if (c == null) return;
+        SubscriptionRequest req;
+        try {
+            req = mapper.readValue(message.getPayload(), SubscriptionRequest.class);
+        } catch (Exception e) {
+            logger.debug("Ignoring malformed message from WebSocket client {}", session.getId());
+            return;
+        }
+        if ("replay".equals(req.action)) {
+            if (journal != null) sender.execute(() -> replay(c, req));
+            return;
+        }
+        if ("unsubscribe".equals(req.action)) {
+            c.subscription = Subscription.ALL;
+        } else if ("subscribe".equals(req.action)) {
+            c.subscription = new Subscription(req.sessionIds, req.compIds, req.msgTypes, req.directions, req.tags);
+        } else {
+            return;
+        }
+        logger.info("WebSocket client {} subscription: {}", session.getId(), c.subscription);
+        rebuildIndex();
+    }
+
+    private synchronized void rebuildIndex() {
+        Set<Subscription> distinct = new LinkedHashSet<>();
+        for (ClientChannel c : clients.values()) distinct.add(c.subscription);
+        index = new SubscriptionIndex(new ArrayList<>(distinct));
     }
 
+    /**
+     * Queue an event for the next flush. Never blocks the caller.
+     */
     public void broadcastMessage(FIXMessageEvent event) {
-        String json;
+        if (clients.isEmpty()) return;
+        received.increment();
+        if (!pending.offer(event)) {
+            overflowed.increment();
+            return;
+        }
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    void flush() {
+        flushRequested.set(false);
+        try {
+            while (!pending.isEmpty()) {
+                List<FIXMessageEvent> events = new ArrayList<>(Math.min(pending.size(), batchSize));
+                pending.drainTo(events, batchSize);
+                if (events.isEmpty()) return;
+                long start = System.nanoTime();
+                EventBatch batch = new EventBatch(events, index, mapper, encoder);
+                for (ClientChannel c : clients.values()) {
+                    c.offer(batch);
+                }
+                frames.increment();
+                coalesced.add(events.size() - 1);
+                if (metrics != null) metrics.recordBroadcast(System.nanoTime() - start);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to flush message events", e);
+        }
+    }
+
+    @Override
+    public void onLogon(Session session, SessionRegistry.Snapshot snapshot) {
+        sessionEvent("logon", session.getSessionID(), snapshot);
+    }
+
+    @Override
+    public void onLogout(SessionID id, SessionRegistry.Snapshot snapshot) {
+        sessionEvent("logout", id, snapshot);
+    }
+
+    private void sessionEvent(String event, SessionID id, SessionRegistry.Snapshot snapshot) {
+        if (clients.isEmpty()) return;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("type", "session");
+        m.put("event", event);
+        m.put("sessionId", id.toString());
+        m.put("version", snapshot.version());
+        m.put("sessions", snapshot.size());
+        TextMessage frame;
         try {
-            json = mapper.writeValueAsString(event);
+            frame = new TextMessage(mapper.writeValueAsString(m));
         } catch (Exception e) {
-            logger.error("Failed to serialize message event", e);
+            logger.warn("Failed to encode session event for {}", id, e);
             return;
         }
+        for (ClientChannel c : clients.values()) c.control(frame);
+        sessionEvents.increment();
+    }
 
-        TextMessage message = new TextMessage(json);
-        for (WebSocketSession session : sessions) {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(message);
+    private void replay(ClientChannel c, SubscriptionRequest req) {
+        try {
+            Subscription sub = c.subscription;
+            JournalQuery q = new JournalQuery();
+            if (req.from != null) q.from = req.from;
+            if (req.to != null) q.to = req.to;
+            q.direction = "in"; // the live stream carries inbound messages only
+            q.sessions = sub.sessionIds().isEmpty() ? null : sub.sessionIds();
+            q.msgTypes = sub.msgTypes().isEmpty() ? null : sub.msgTypes();
+            q.limit = req.limit == null ? replayLimit : Math.min(Math.max(req.limit, 0), MAX_REPLAY);
+            q.newestFirst = true;
+            List<JournalRecord> records = journal.query(q);
+            Collections.reverse(records);
+
+            // the journal filters on session and MsgType; the index applies the rest of the subscription
+            SubscriptionIndex filter = new SubscriptionIndex(List.of(sub));
+            BitSet hit = new BitSet();
+            List<TextMessage> frames = new ArrayList<>();
+            List<FIXMessageEvent> chunk = new ArrayList<>(batchSize);
+            EventEncoder enc = new EventEncoder();
+            int count = 0;
+            for (JournalRecord r : records) {
+                FIXMessageEvent e = toEvent(r);
+                filter.match(e, hit);
+                if (hit.isEmpty()) continue;
+                chunk.add(e);
+                count++;
+                if (chunk.size() >= batchSize) {
+                    frames.add(frame(enc, chunk));
+                    chunk.clear();
                 }
-            } catch (Exception e) {
-                logger.warn("Failed to send WebSocket message to session {}", session.getId(), e);
             }
+            if (!chunk.isEmpty()) frames.add(frame(enc, chunk));
+            Map<String, Object> done = new LinkedHashMap<>();
+            done.put("type", "replay_done");
+            done.put("count", count);
+            frames.add(new TextMessage(mapper.writeValueAsString(done)));
+            c.replay(frames);
+            logger.info("Replaying {} journal message(s) to WebSocket client {}", count, c.session.getId());
+        } catch (Exception e) {
+            logger.warn("Failed to replay journal to WebSocket client {}", c.session.getId(), e);
         }
     }
 
+    private static TextMessage frame(EventEncoder enc, List<FIXMessageEvent> events) {
+        enc.reset();
+        enc.array(events);
+        return new TextMessage(enc.copy(0, enc.length()));
+    }
+
+    private static FIXMessageEvent toEvent(JournalRecord r) {
+        String session = r.session;
+        int colon = session.indexOf(':');
+        int arrow = session.indexOf("->", colon + 1);
+        String sender = null;
+        String target = null;
+        if (arrow > 0) {
+            sender = session.substring(colon + 1, arrow);
+            int end = session.indexOf(':', arrow);
+            target = session.substring(arrow + 2, end < 0 ? session.length() : end);
+        }
+        FIXMessageEvent e = new FIXMessageEvent("incoming", session, sender, target, r.msgType, r.raw, "FROM_CLIENT");
+        e.timestamp = r.timestamp;
+        return e;
+    }
+
     public int getConnectedSessions() {
-        return sessions.size();
+        return clients.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long dropped = overflowed.sum();
+        Map<String, Integer> modes = new LinkedHashMap<>();
+        for (ClientChannel.Mode m : ClientChannel.Mode.values()) modes.put(m.name().toLowerCase(), 0);
+        int binaryClients = 0;
+        for (ClientChannel c : clients.values()) {
+            dropped += c.dropped.sum();
+            modes.merge(c.mode().name().toLowerCase(), 1, Integer::sum);
+            if (c.binary()) binaryClients++;
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("events_received", received.sum());
+        m.put("events_coalesced", coalesced.sum());
+        m.put("events_dropped", dropped);
+        m.put("frames_flushed", frames.sum());
+        m.put("session_events", sessionEvents.sum());
+        m.put("pending", pending.size());
+        m.put("client_modes", modes);
+        m.put("binary_clients", binaryClients);
+        m.put("distinct_subscriptions", index.size());
+        return m;
+    }
+
+    public static class SubscriptionRequest {
+        public String action;
+        public Set<String> sessionIds;
+        public Set<String> compIds;
+        public Set<String> msgTypes;
+        public Set<String> directions;
+        public Map<Integer, String> tags;
+        // replay window, epoch millis
+        public Long from;
+        public Long to;
+        public Integer limit;
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
     }
 }
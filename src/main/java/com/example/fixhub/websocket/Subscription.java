@@ -0,0 +1,25 @@
+package com.example.fixhub.websocket;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a stream client wants to see. An empty set means "any value" for that field; tag
+ * predicates must all match. Clients with equal subscriptions share index slots and frames.
+ */
+public record Subscription(Set<String> sessionIds,
+                           Set<String> compIds,
+                           Set<String> msgTypes,
+                           Set<String> directions,
+                           Map<Integer, String> tags) {
+
+    public static final Subscription ALL = new Subscription(Set.of(), Set.of(), Set.of(), Set.of(), Map.of());
+
+    public Subscription {
+        sessionIds = sessionIds == null ? Set.of() : Set.copyOf(sessionIds);
+        compIds = compIds == null ? Set.of() : Set.copyOf(compIds);
+        msgTypes = msgTypes == null ? Set.of() : Set.copyOf(msgTypes);
+        directions = directions == null ? Set.of() : Set.copyOf(directions);
+        tags = tags == null ? Map.of() : Map.copyOf(tags);
+    }
+}
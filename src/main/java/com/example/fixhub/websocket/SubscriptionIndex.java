@@ -0,0 +1,115 @@
+package com.example.fixhub.websocket;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Immutable filter index over the distinct subscriptions of the connected clients. Each
+ * subscription gets a bit; matching an event intersects, per field, the subscriptions that
+ * accept any value with those that list the event's value. Only the flusher thread calls
+ * {@link #match}, so the scratch bitsets are reused without synchronization.
+ */
+class SubscriptionIndex {
+
+    static final SubscriptionIndex EMPTY = new SubscriptionIndex(List.of());
+
+    private final Subscription[] subscriptions;
+    private final BitSet all = new BitSet();
+    private final Field sessionIds;
+    private final Field compIds;
+    private final Field msgTypes;
+    private final Field directions;
+    // subscriptions with tag predicates, and their "SOH tag=value SOH" needles
+    private final int[] tagged;
+    private final String[][] needles;
+
+    private final BitSet scratch = new BitSet();
+
+    SubscriptionIndex(List<Subscription> distinct) {
+        this.subscriptions = distinct.toArray(new Subscription[0]);
+        all.set(0, subscriptions.length);
+        sessionIds = new Field(subscriptions, Subscription::sessionIds);
+        compIds = new Field(subscriptions, Subscription::compIds);
+        msgTypes = new Field(subscriptions, Subscription::msgTypes);
+        directions = new Field(subscriptions, Subscription::directions);
+
+        int n = 0;
+        for (Subscription s : subscriptions) if (!s.tags().isEmpty()) n++;
+        tagged = new int[n];
+        needles = new String[n][];
+        n = 0;
+        for (int i = 0; i < subscriptions.length; i++) {
+            Map<Integer, String> tags = subscriptions[i].tags();
+            if (tags.isEmpty()) continue;
+            tagged[n] = i;
+            needles[n] = tags.entrySet().stream()
+                    .map(e -> '\u0001' + String.valueOf(e.getKey()) + '=' + e.getValue() + '\u0001')
+                    .toArray(String[]::new);
+            n++;
+        }
+    }
+
+    int size() {
+        return subscriptions.length;
+    }
+
+    Subscription get(int i) {
+        return subscriptions[i];
+    }
+
+    /**
+     * Sets in {@code out} the bits of every subscription that wants the event.
+     */
+    void match(FIXMessageEvent e, BitSet out) {
+        out.clear();
+        out.or(all);
+        sessionIds.and(out, e.sessionId, null);
+        compIds.and(out, e.senderCompID, e.targetCompID);
+        msgTypes.and(out, e.messageType, null);
+        directions.and(out, e.direction, null);
+        if (out.isEmpty() || tagged.length == 0) return;
+
+        String body = e.messageBody == null ? "" : '\u0001' + e.messageBody;
+        for (int t = 0; t < tagged.length; t++) {
+            int bit = tagged[t];
+            if (!out.get(bit)) continue;
+            for (String needle : needles[t]) {
+                if (!body.contains(needle)) {
+                    out.clear(bit);
+                    break;
+                }
+            }
+        }
+    }
+
+    private final class Field {
+        private final BitSet wildcard = new BitSet();
+        private final Map<String, BitSet> values = new HashMap<>();
+
+        Field(Subscription[] subs, Function<Subscription, Set<String>> getter) {
+            for (int i = 0; i < subs.length; i++) {
+                Set<String> vs = getter.apply(subs[i]);
+                if (vs.isEmpty()) {
+                    wildcard.set(i);
+                } else {
+                    for (String v : vs) values.computeIfAbsent(v, k -> new BitSet()).set(i);
+                }
+            }
+        }
+
+        void and(BitSet out, String value, String alt) {
+            if (values.isEmpty()) return;
+            scratch.clear();
+            scratch.or(wildcard);
+            BitSet b = value == null ? null : values.get(value);
+            if (b != null) scratch.or(b);
+            b = alt == null ? null : values.get(alt);
+            if (b != null) scratch.or(b);
+            out.and(scratch);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.fixhub.fix;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ByteSliceMapTest {
+
+    @Test
+    void findsKeysBySliceOfALargerBuffer() {
+        ByteSliceMap map = new ByteSliceMap(Map.of("IBM", 1, "MSFT", 2));
+        byte[] buf = bytes("55=MSFT\u000155=IBM\u0001");
+        assertEquals(2, map.get(buf, 3, 4));
+        assertEquals(1, map.get(buf, 11, 3));
+    }
+
+    @Test
+    void missingKeyIsMissing() {
+        ByteSliceMap map = new ByteSliceMap(Map.of("IBM", 1));
+        assertEquals(ByteSliceMap.MISSING, get(map, "MSFT"));
+        assertEquals(ByteSliceMap.MISSING, get(map, ""));
+    }
+
+    @Test
+    void emptyMapFindsNothing() {
+        ByteSliceMap map = new ByteSliceMap(Map.of());
+        assertEquals(ByteSliceMap.MISSING, get(map, "IBM"));
+    }
+
+    @Test
+    void prefixesAreDistinctKeys() {
+        ByteSliceMap map = new ByteSliceMap(Map.of("AB", 1, "ABC", 2));
+        assertEquals(1, get(map, "AB"));
+        assertEquals(2, get(map, "ABC"));
+        assertEquals(ByteSliceMap.MISSING, get(map, "A"));
+        assertEquals(ByteSliceMap.MISSING, get(map, "ABCD"));
+    }
+
+    @Test
+    void emptyKey() {
+        ByteSliceMap map = new ByteSliceMap(Map.of("", 7));
+        assertEquals(7, get(map, ""));
+    }
+
+    @Test
+    void collidingKeysProbeToTheirOwnSlot() {
+        // two entries make an 8-slot table; pick three keys whose hashes share the low three bits
+        String[] colliding = new String[3];
+        int found = 0;
+        int bucket = -1;
+        for (int i = 0; found < colliding.length; i++) {
+            String k = "K" + i;
+            byte[] b = bytes(k);
+            int slot = ByteSliceMap.hash(b, 0, b.length) & 7;
+            if (bucket < 0) bucket = slot;
+            if (slot == bucket) colliding[found++] = k;
+        }
+        Map<String, Integer> entries = new LinkedHashMap<>();
+        entries.put(colliding[0], 10);
+        entries.put(colliding[1], 11);
+        ByteSliceMap map = new ByteSliceMap(entries);
+
+        assertEquals(10, get(map, colliding[0]));
+        assertEquals(11, get(map, colliding[1]));
+        // probes past both occupied slots before giving up
+        assertEquals(ByteSliceMap.MISSING, get(map, colliding[2]));
+        assertNotEquals(colliding[0], colliding[1]);
+    }
+
+    @Test
+    void manyKeys() {
+        Map<String, Integer> entries = new HashMap<>();
+        for (int i = 0; i < 1000; i++) entries.put("SYM" + i, i);
+        ByteSliceMap map = new ByteSliceMap(entries);
+        for (int i = 0; i < 1000; i++) assertEquals(i, get(map, "SYM" + i));
+        for (int i = 1000; i < 1100; i++) assertEquals(ByteSliceMap.MISSING, get(map, "SYM" + i));
+    }
+
+    private static int get(ByteSliceMap map, String key) {
+        byte[] b = bytes(key);
+        return map.get(b, 0, b.length);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.fixhub.fix;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixTagViewTest {
+
+    private static final TagSelector SYMBOL_AND_TEXT = TagSelector.of(55, 58);
+
+    private final FixTagView view = new FixTagView();
+
+    @Test
+    void findsSelectedTags() {
+        view.wrap(fix("8=FIX.4.4", "35=D", "55=IBM", "58=hello"), SYMBOL_AND_TEXT);
+        assertEquals("IBM", value(55));
+        assertEquals("hello", value(58));
+    }
+
+    @Test
+    void missingTagIsNotFound() {
+        view.wrap(fix("8=FIX.4.4", "35=D", "55=IBM"), SYMBOL_AND_TEXT);
+        int slot = SYMBOL_AND_TEXT.slot(58);
+        assertEquals(FixTagView.NOT_FOUND, view.valueOffset(slot));
+        assertEquals(0, view.valueLength(slot));
+        assertFalse(view.valueEquals(slot, bytes("")));
+    }
+
+    @Test
+    void firstOccurrenceWinsForDuplicateTags() {
+        // the second 55 is in a NoRelatedSym entry; the view does not know groups, so order decides
+        view.wrap(fix("35=V", "55=AAA", "146=1", "55=BBB"), SYMBOL_AND_TEXT);
+        assertEquals("AAA", value(55));
+    }
+
+    @Test
+    void tagOnlyInsideGroupIsFound() {
+        view.wrap(fix("35=V", "146=2", "55=AAA", "55=BBB"), SYMBOL_AND_TEXT);
+        assertEquals("AAA", value(55));
+    }
+
+    @Test
+    void emptyValueIsFoundWithZeroLength() {
+        view.wrap(fix("35=D", "55=", "58=x"), SYMBOL_AND_TEXT);
+        int slot = SYMBOL_AND_TEXT.slot(55);
+        assertEquals(0, view.valueLength(slot));
+        assertTrue(view.valueEquals(slot, bytes("")));
+        assertEquals("x", value(58));
+    }
+
+    @Test
+    void lastFieldWithoutTrailingSoh() {
+        view.wrap("35=D\u000155=IBM", SYMBOL_AND_TEXT);
+        assertEquals("IBM", value(55));
+    }
+
+    @Test
+    void emptyFieldBetweenSohsIsSkipped() {
+        view.wrap("35=D\u0001\u000155=IBM\u0001", SYMBOL_AND_TEXT);
+        assertEquals("IBM", value(55));
+    }
+
+    @Test
+    void fieldWithoutEqualsIsSkipped() {
+        view.wrap("35=D\u0001garbage\u000155=IBM\u0001", SYMBOL_AND_TEXT);
+        assertEquals("IBM", value(55));
+    }
+
+    @Test
+    void valueMayContainEquals() {
+        view.wrap(fix("58=a=b", "55=IBM"), SYMBOL_AND_TEXT);
+        assertEquals("a=b", value(58));
+        assertEquals("IBM", value(55));
+    }
+
+    @Test
+    void nonNumericTagIsIgnored() {
+        view.wrap(fix("5x5=BAD", "55=IBM"), SYMBOL_AND_TEXT);
+        assertEquals("IBM", value(55));
+    }
+
+    @Test
+    void valueEqualsComparesLengthAndBytes() {
+        view.wrap(fix("55=IBM"), SYMBOL_AND_TEXT);
+        int slot = SYMBOL_AND_TEXT.slot(55);
+        assertTrue(view.valueEquals(slot, bytes("IBM")));
+        assertFalse(view.valueEquals(slot, bytes("IB")));
+        assertFalse(view.valueEquals(slot, bytes("IBMX")));
+        assertFalse(view.valueEquals(slot, bytes("IBN")));
+    }
+
+    @Test
+    void rewrapForgetsThePreviousMessage() {
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 3000; i++) longText.append('x');
+        view.wrap(fix("55=IBM", "58=" + longText), SYMBOL_AND_TEXT);
+        assertEquals(3000, view.valueLength(SYMBOL_AND_TEXT.slot(58)));
+
+        view.wrap(fix("55=MSFT"), SYMBOL_AND_TEXT);
+        assertEquals("MSFT", value(55));
+        assertEquals(FixTagView.NOT_FOUND, view.valueOffset(SYMBOL_AND_TEXT.slot(58)));
+    }
+
+    @Test
+    void wrapsEncodedBytes() {
+        byte[] encoded = bytes(fix("35=D", "55=IBM") + "trailing bytes past len");
+        view.wrap(encoded, fix("35=D", "55=IBM").length(), SYMBOL_AND_TEXT);
+        assertEquals("IBM", value(55));
+    }
+
+    @Test
+    void selectsTagsAboveTheDirectTable() {
+        TagSelector selector = TagSelector.of(55, 20001);
+        view.wrap(fix("55=IBM", "20001=custom"), selector);
+        int slot = selector.slot(20001);
+        assertEquals("custom", new String(view.buffer(), view.valueOffset(slot), view.valueLength(slot),
+                StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void emptySelectorCapturesNothing() {
+        view.wrap(fix("55=IBM"), TagSelector.NONE);
+        assertEquals(0, view.selector().size());
+    }
+
+    private String value(int tag) {
+        int slot = view.selector().slot(tag);
+        return new String(view.buffer(), view.valueOffset(slot), view.valueLength(slot), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String fix(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (String f : fields) sb.append(f).append('\u0001');
+        return sb.toString();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.fixhub.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalCodecTest {
+
+    @Test
+    void roundTrip() {
+        JournalEntry e = entry(JournalEntry.OUTBOUND, true, 1_700_000_000_123L, "FIX.4.4:HUB->CLIENT1", "D",
+                "BROKER1", "8=FIX.4.4\u000135=D\u000155=IBM\u0001");
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        buf.position(16);
+        JournalCodec.encode(e, buf);
+
+        assertEquals(16 + JournalCodec.size(e), buf.position());
+        assertEquals(JournalCodec.size(e) - 4, buf.getInt(16));
+        JournalRecord r = JournalCodec.decode(buf, 16);
+        assertEquals("out", r.direction);
+        assertTrue(r.ok);
+        assertEquals(1_700_000_000_123L, r.timestamp);
+        assertEquals("FIX.4.4:HUB->CLIENT1", r.session);
+        assertEquals("D", r.msgType);
+        assertEquals("BROKER1", r.destination);
+        assertEquals(e.raw, r.raw);
+    }
+
+    @Test
+    void missingDestinationAndMessageDecodeAsNullAndEmpty() {
+        JournalEntry e = entry(JournalEntry.INBOUND, false, 1L, "S", "0", null, null);
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        JournalCodec.encode(e, buf);
+
+        JournalRecord r = JournalCodec.decode(buf, 0);
+        assertTrue(r.inbound());
+        assertFalse(r.ok);
+        assertNull(r.destination);
+        assertEquals("", r.raw);
+    }
+
+    @Test
+    void charactersAreWrittenOneBytePerChar() {
+        JournalEntry e = entry(JournalEntry.INBOUND, true, 1L, "S", "D", null, "58=caf\u00e9\u0001");
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        JournalCodec.encode(e, buf);
+        assertEquals(JournalCodec.size(e), buf.position());
+        assertEquals("58=caf\u00e9\u0001", JournalCodec.decode(buf, 0).raw);
+    }
+
+    @Test
+    void storedStringsHashAndCompareLikeTheOriginal() {
+        JournalEntry e = entry(JournalEntry.INBOUND, true, 1L, "FIX.4.4:HUB->CLIENT1", "AE", null, "");
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        JournalCodec.encode(e, buf);
+
+        int typeOff = JournalCodec.SESSION + 2 + buf.getShort(JournalCodec.SESSION);
+        assertEquals(e.session.hashCode(), JournalCodec.hashShortString(buf, JournalCodec.SESSION));
+        assertEquals("AE".hashCode(), JournalCodec.hashShortString(buf, typeOff));
+        assertTrue(JournalCodec.shortStringEquals(buf, typeOff, new byte[] {'A', 'E'}));
+        assertFalse(JournalCodec.shortStringEquals(buf, typeOff, new byte[] {'A'}));
+        assertFalse(JournalCodec.shortStringEquals(buf, typeOff, new byte[] {'A', 'F'}));
+    }
+
+    @Test
+    void completeAcceptsAWholeRecord() {
+        JournalEntry e = entry(JournalEntry.INBOUND, true, 1L, "S", "D", "R", "55=IBM\u0001");
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        JournalCodec.encode(e, buf);
+        assertTrue(JournalCodec.complete(buf, 0, buf.position()));
+        assertTrue(JournalCodec.complete(buf, 0, buf.capacity()));
+    }
+
+    @Test
+    void completeRejectsTornAndCutRecords() {
+        JournalEntry e = entry(JournalEntry.INBOUND, true, 1L, "S", "D", "R", "55=IBM\u0001");
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        JournalCodec.encode(e, buf);
+        int size = buf.position();
+
+        // cut short by the end of the segment
+        assertFalse(JournalCodec.complete(buf, 0, size - 1));
+        assertFalse(JournalCodec.complete(buf, size, size + 3));
+
+        // the length prefix is written last, so a torn record reads as zero
+        buf.putInt(0, 0);
+        assertFalse(JournalCodec.complete(buf, 0, buf.capacity()));
+
+        // a length the fields do not add up to
+        buf.putInt(0, size - 4 + 1);
+        assertFalse(JournalCodec.complete(buf, 0, buf.capacity()));
+        buf.putInt(0, Integer.MAX_VALUE);
+        assertFalse(JournalCodec.complete(buf, 0, buf.capacity()));
+        buf.putInt(0, -1);
+        assertFalse(JournalCodec.complete(buf, 0, buf.capacity()));
+
+        buf.putInt(0, size - 4);
+        assertTrue(JournalCodec.complete(buf, 0, buf.capacity()));
+        buf.putShort(JournalCodec.SESSION, (short) 40);
+        assertFalse(JournalCodec.complete(buf, 0, buf.capacity()));
+    }
+
+    static JournalEntry entry(byte kind, boolean ok, long millis, String session, String msgType,
+                              String destination, String raw) {
+        JournalEntry e = new JournalEntry();
+        e.kind = kind;
+        e.flags = ok ? JournalEntry.FLAG_OK : 0;
+        e.epochMillis = millis;
+        e.session = session;
+        e.msgType = msgType;
+        e.destination = destination;
+        e.raw = raw;
+        return e;
+    }
+}
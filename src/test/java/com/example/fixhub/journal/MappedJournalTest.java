@@ -0,0 +1,279 @@
+package com.example.fixhub.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.fixhub.journal.JournalCodecTest.entry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedJournalTest {
+
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void queriesOldestOrNewestFirstAcrossSegments() throws IOException {
+        MappedJournal journal = open(16, 4);
+        for (int i = 0; i < 200; i++) append(journal, i);
+        assertTrue(journal.segmentCount() > 1);
+
+        assertEquals(range(0, 200), millis(journal.query(query(1000, false))));
+        assertEquals(range(199, 189), millis(journal.query(query(10, true))));
+        assertEquals(range(0, 10), millis(journal.query(query(10, false))));
+        assertTrue(journal.query(query(0, true)).isEmpty());
+        journal.close();
+    }
+
+    @Test
+    void filtersBySessionOrDestinationTypeDirectionAndTime() throws IOException {
+        MappedJournal journal = open(16, 4);
+        for (int i = 0; i < 100; i++) append(journal, i);
+
+        JournalQuery q = query(1000, false);
+        q.sessions = Set.of("S3");
+        assertEquals(List.of(3L, 13L, 23L, 33L, 43L, 53L, 63L, 73L, 83L, 93L), millis(journal.query(q)));
+
+        q = query(1000, true);
+        q.sessions = Set.of("BROKER1");
+        q.msgTypes = Set.of("8");
+        q.direction = "out";
+        q.from = 20;
+        q.to = 60;
+        List<JournalRecord> found = journal.query(q);
+        assertEquals(List.of(57L, 53L, 49L, 45L, 41L, 37L, 33L, 29L, 25L, 21L), millis(found));
+        for (JournalRecord r : found) {
+            assertEquals("BROKER1", r.destination);
+            assertEquals("out", r.direction);
+        }
+        journal.close();
+    }
+
+    @Test
+    void reopenRecoversRecordsAndKeepsAppending() throws IOException {
+        MappedJournal journal = open(16, 4);
+        for (int i = 0; i < 150; i++) append(journal, i);
+        long bytes = journal.bytes();
+        int segments = journal.segmentCount();
+        journal.close();
+
+        journal = open(16, 4);
+        assertEquals(segments, journal.segmentCount());
+        assertEquals(bytes, journal.bytes());
+        JournalQuery q = query(1000, false);
+        q.sessions = Set.of("S7");
+        assertEquals(List.of(7L, 17L, 27L, 37L, 47L, 57L, 67L, 77L, 87L, 97L, 107L, 117L, 127L, 137L, 147L),
+                millis(journal.query(q)));
+
+        for (int i = 150; i < 200; i++) append(journal, i);
+        assertEquals(range(0, 200), millis(journal.query(query(1000, false))));
+        journal.close();
+    }
+
+    @Test
+    void recoveryStopsAtATornLengthPrefix() throws IOException {
+        MappedJournal journal = open(16, 4);
+        for (int i = 0; i < 3; i++) append(journal, i);
+        journal.close();
+
+        // the last record's length was never written
+        int last = JournalCodec.size(entry(0)) + JournalCodec.size(entry(1));
+        writeInt(segments().get(0), last, 0);
+        journal = open(16, 4);
+        assertEquals(range(0, 2), millis(journal.query(query(1000, false))));
+        assertEquals(last, journal.bytes());
+
+        // the next record takes its place
+        append(journal, 5);
+        assertEquals(List.of(0L, 1L, 5L), millis(journal.query(query(1000, false))));
+        journal.close();
+    }
+
+    @Test
+    void recoveryStopsAtALengthTheFieldsDoNotAddUpTo() throws IOException {
+        MappedJournal journal = open(16, 4);
+        for (int i = 0; i < 3; i++) append(journal, i);
+        journal.close();
+
+        int last = JournalCodec.size(entry(0)) + JournalCodec.size(entry(1));
+        writeInt(segments().get(0), last, 7);
+        journal = open(16, 4);
+        assertEquals(range(0, 2), millis(journal.query(query(1000, false))));
+        journal.close();
+
+        writeInt(segments().get(0), last, SEGMENT * 2);
+        journal = open(16, 4);
+        assertEquals(range(0, 2), millis(journal.query(query(1000, false))));
+        journal.close();
+    }
+
+    @Test
+    void recoveryStopsAtTheZeroFilledTail() throws IOException {
+        MappedJournal journal = open(16, 4);
+        append(journal, 0);
+        journal.close();
+        assertEquals(SEGMENT, Files.size(segments().get(0)));
+
+        journal = open(16, 4);
+        assertEquals(1, journal.segmentCount());
+        assertEquals(JournalCodec.size(entry(0)), journal.bytes());
+        assertEquals(range(0, 1), millis(journal.query(query(1000, true))));
+    }
+
+    @Test
+    void staleBytesPastAShorterRecordAreNotRecovered() throws IOException {
+        MappedJournal journal = open(16, 4);
+        append(journal, 0);
+        // the big record's message holds a whole record, placed where the short one will end
+        JournalEntry big = entry(1);
+        big.raw = "";
+        StringBuilder raw = new StringBuilder("x".repeat(JournalCodec.size(entry(2)) - JournalCodec.size(big)));
+        ByteBuffer inner = ByteBuffer.allocate(64);
+        JournalCodec.encode(entry(99), inner);
+        for (int i = 0; i < inner.position(); i++) raw.append((char) (inner.get(i) & 0xff));
+        big.raw = raw.append("x".repeat(100)).toString();
+        journal.append(big);
+        journal.close();
+
+        // a crash before the big record's length was written, then a short record in its place
+        int second = JournalCodec.size(entry(0));
+        writeInt(segments().get(0), second, 0);
+        journal = open(16, 4);
+        append(journal, 2);
+        journal.close();
+
+        // the record inside the big one's message, now past the end, is not read back
+        journal = open(16, 4);
+        assertEquals(List.of(0L, 2L), millis(journal.query(query(1000, false))));
+        append(journal, 3);
+        assertEquals(List.of(0L, 2L, 3L), millis(journal.query(query(1000, false))));
+        journal.close();
+    }
+
+    @Test
+    void rollDeletesSegmentsBeyondTheLimit() throws IOException {
+        MappedJournal journal = open(3, 4);
+        for (int i = 0; i < 500; i++) append(journal, i);
+        assertEquals(3, journal.segmentCount());
+        assertEquals(3, segments().size());
+
+        List<Long> all = millis(journal.query(query(1000, false)));
+        assertTrue(all.size() < 500);
+        assertEquals(range(500 - all.size(), 500), all);
+        journal.close();
+    }
+
+    @Test
+    void startupTrimsSegmentsBeyondALowerLimit() throws IOException {
+        MappedJournal journal = open(16, 4);
+        for (int i = 0; i < 500; i++) append(journal, i);
+        assertTrue(journal.segmentCount() > 2);
+        journal.close();
+        List<Path> before = segments();
+
+        journal = open(2, 4);
+        assertEquals(2, journal.segmentCount());
+        assertEquals(before.subList(before.size() - 2, before.size()), segments());
+        assertEquals(List.of(499L), millis(journal.query(query(1, true))));
+
+        append(journal, 500);
+        assertEquals(List.of(500L, 499L), millis(journal.query(query(2, true))));
+        journal.close();
+    }
+
+    @Test
+    void recordLargerThanASegmentGetsItsOwn() throws IOException {
+        MappedJournal journal = open(16, 4);
+        append(journal, 0);
+        JournalEntry big = entry(1);
+        big.raw = "58=" + "x".repeat(SEGMENT * 2) + "\u0001";
+        journal.append(big);
+        append(journal, 2);
+
+        assertEquals(3, journal.segmentCount());
+        List<JournalRecord> all = journal.query(query(1000, false));
+        assertEquals(range(0, 3), millis(all));
+        assertEquals(big.raw, all.get(1).raw);
+        journal.close();
+
+        journal = open(16, 4);
+        assertEquals(range(0, 3), millis(journal.query(query(1000, false))));
+    }
+
+    @Test
+    void segmentSizeIsValidatedAndCapped() {
+        assertEquals(64 << 20, MappedJournal.segmentSize(64L << 20));
+        assertEquals(MappedJournal.MAX_SEGMENT_BYTES, MappedJournal.segmentSize(2048L * 1024 * 1024));
+        assertEquals(MappedJournal.MAX_SEGMENT_BYTES, MappedJournal.segmentSize(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> MappedJournal.segmentSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new MappedJournal(dir, -1, 4, 4));
+    }
+
+    private MappedJournal open(int maxSegments, int indexInterval) throws IOException {
+        return new MappedJournal(dir, SEGMENT, maxSegments, indexInterval);
+    }
+
+    private static void append(MappedJournal journal, int i) throws IOException {
+        journal.append(entry(i));
+    }
+
+    // even records are inbound, odd ones go out to BROKER1 or BROKER2
+    private static JournalEntry entry(int i) {
+        boolean out = (i & 1) == 1;
+        return JournalCodecTest.entry(out ? JournalEntry.OUTBOUND : JournalEntry.INBOUND, true, i,
+                "S" + (i % 10), out ? "8" : "D", out ? "BROKER" + (i % 4 == 1 ? 1 : 2) : "RT",
+                String.format("11=ORD%03d\u0001", i % 1000));
+    }
+
+    private static JournalQuery query(int limit, boolean newestFirst) {
+        JournalQuery q = new JournalQuery();
+        q.limit = limit;
+        q.newestFirst = newestFirst;
+        return q;
+    }
+
+    private static List<Long> millis(List<JournalRecord> records) {
+        List<Long> out = new ArrayList<>();
+        for (JournalRecord r : records) out.add(r.timestamp);
+        return out;
+    }
+
+    // from inclusive, to exclusive; descending when to < from
+    private static List<Long> range(int from, int to) {
+        List<Long> out = new ArrayList<>();
+        if (from <= to) {
+            for (long i = from; i < to; i++) out.add(i);
+        } else {
+            for (long i = from; i > to; i--) out.add(i);
+        }
+        return out;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void writeInt(Path file, int offset, int value) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(4).putInt(0, value);
+            ch.write(b, offset);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.fixhub.service;
+
+import com.example.fixhub.config.RouteConfig;
+import com.example.fixhub.fix.FixTagView;
+import org.junit.jupiter.api.Test;
+import quickfix.SessionID;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteTableTest {
+
+    private static final SessionID CLIENT1 = new SessionID("FIX.4.4", "HUB", "CLIENT1");
+    private static final SessionID CLIENT2 = new SessionID("FIX.4.4", "HUB", "CLIENT2");
+
+    private final FixTagView view = new FixTagView();
+
+    @Test
+    void emptyTableMatchesNothing() {
+        RouteTable table = RouteTable.compile(List.of());
+        assertNull(table.match(null, CLIENT1));
+        assertTrue(table.matchAll(null, CLIENT1).isEmpty());
+        assertNull(RouteTable.compile(null).match(null, CLIENT1));
+    }
+
+    @Test
+    void withoutConditionsNoViewIsNeeded() {
+        RouteConfig r = route("CLIENT1", "BROKER1");
+        RouteTable table = RouteTable.compile(List.of(r));
+        assertEquals(0, table.conditionTags().size());
+        assertSame(r, table.match(null, CLIENT1));
+        assertNull(table.match(null, CLIENT2));
+    }
+
+    @Test
+    void sourceMatchesEitherCompId() {
+        RouteConfig r = route("HUB", "BROKER1");
+        RouteTable table = RouteTable.compile(List.of(r));
+        assertSame(r, table.match(null, CLIENT1));
+    }
+
+    @Test
+    void firstRuleInConfigOrderWinsAcrossBuckets() {
+        RouteConfig wildcard = route(null, "ALL");
+        RouteConfig specific = route("CLIENT1", "BROKER1");
+        assertSame(wildcard, RouteTable.compile(List.of(wildcard, specific)).match(null, CLIENT1));
+        assertSame(specific, RouteTable.compile(List.of(specific, wildcard)).match(null, CLIENT1));
+        assertSame(wildcard, RouteTable.compile(List.of(specific, wildcard)).match(null, CLIENT2));
+    }
+
+    @Test
+    void conditionSelectsByValue() {
+        RouteConfig ibm = conditional("CLIENT1", "BROKER_IBM", 55, "IBM");
+        RouteConfig msft = conditional("CLIENT1", "BROKER_MSFT", 55, "MSFT");
+        RouteConfig rest = route("CLIENT1", "BROKER_REST");
+        RouteTable table = RouteTable.compile(List.of(ibm, msft, rest));
+
+        assertSame(ibm, match(table, "35=D", "55=IBM"));
+        assertSame(msft, match(table, "35=D", "55=MSFT"));
+        assertSame(rest, match(table, "35=D", "55=ORCL"));
+    }
+
+    @Test
+    void missingConditionTagFallsThrough() {
+        RouteConfig ibm = conditional("CLIENT1", "BROKER_IBM", 55, "IBM");
+        RouteConfig rest = route("CLIENT1", "BROKER_REST");
+        RouteTable table = RouteTable.compile(List.of(ibm, rest));
+        assertSame(rest, match(table, "35=D", "11=ORD-1"));
+
+        RouteTable onlyConditional = RouteTable.compile(List.of(ibm));
+        assertNull(match(onlyConditional, "35=D", "11=ORD-1"));
+    }
+
+    @Test
+    void earlierUnconditionalRuleBeatsLaterCondition() {
+        RouteConfig rest = route("CLIENT1", "BROKER_REST");
+        RouteConfig ibm = conditional("CLIENT1", "BROKER_IBM", 55, "IBM");
+        assertSame(rest, match(RouteTable.compile(List.of(rest, ibm)), "35=D", "55=IBM"));
+    }
+
+    @Test
+    void sameConditionTwiceKeepsTheFirstRule() {
+        RouteConfig first = conditional("CLIENT1", "A", 55, "IBM");
+        RouteConfig second = conditional("CLIENT1", "B", 55, "IBM");
+        assertSame(first, match(RouteTable.compile(List.of(first, second)), "55=IBM"));
+    }
+
+    @Test
+    void conditionsOnDifferentTagsKeepRuleOrder() {
+        RouteConfig byType = conditional("CLIENT1", "A", 35, "D");
+        RouteConfig bySymbol = conditional("CLIENT1", "B", 55, "IBM");
+        assertSame(bySymbol, match(RouteTable.compile(List.of(bySymbol, byType)), "35=D", "55=IBM"));
+        assertSame(byType, match(RouteTable.compile(List.of(byType, bySymbol)), "35=D", "55=IBM"));
+    }
+
+    @Test
+    void unicastMatchAllReturnsTheSameListEachTime() {
+        RouteConfig r = route("CLIENT1", "BROKER1");
+        RouteTable table = RouteTable.compile(List.of(r));
+        List<RouteConfig> first = table.matchAll(null, CLIENT1);
+        assertEquals(List.of(r), first);
+        assertSame(first, table.matchAll(null, CLIENT1));
+    }
+
+    @Test
+    void multicastCollectsUpToTheFirstNonMulticastMatch() {
+        RouteConfig a = route("CLIENT1", "A");
+        a.multicast = true;
+        RouteConfig other = route("CLIENT2", "OTHER");
+        RouteConfig b = conditional(null, "B", 55, "IBM");
+        b.multicast = true;
+        RouteConfig skipped = conditional(null, "SKIPPED", 55, "MSFT");
+        RouteConfig c = route(null, "C");
+        RouteConfig after = route(null, "AFTER");
+        RouteTable table = RouteTable.compile(List.of(a, other, b, skipped, c, after));
+
+        view.wrap(fix("35=D", "55=IBM"), table.conditionTags());
+        assertEquals(List.of(a, b, c), table.matchAll(view, CLIENT1));
+    }
+
+    @Test
+    void labelsAreFromArrowTo() {
+        RouteConfig r = route("CLIENT1", "BROKER1");
+        RouteConfig any = route(null, "BROKER1");
+        RouteTable.compile(List.of(r, any));
+        assertEquals("CLIENT1->BROKER1", r.label());
+        assertEquals("*->BROKER1", any.label());
+    }
+
+    private RouteConfig match(RouteTable table, String... fields) {
+        return table.match(view.wrap(fix(fields), table.conditionTags()), CLIENT1);
+    }
+
+    private static RouteConfig route(String from, String to) {
+        return new RouteConfig(from, to);
+    }
+
+    private static RouteConfig conditional(String from, String to, int tag, String value) {
+        RouteConfig r = new RouteConfig(from, to);
+        r.conditionTag = tag;
+        r.conditionValue = value;
+        return r;
+    }
+
+    private static String fix(String... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (String f : fields) sb.append(f).append('\u0001');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.fixhub.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import quickfix.SessionID;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedMessageStoreTest {
+
+    private static final SessionID SESSION = new SessionID("FIX.4.4", "HUB", "CLIENT1");
+    private static final int RECORD_HEADER = 12;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void returnsStoredMessagesInSequenceOrder() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "one");
+        store.set(2, "two");
+        store.set(4, "four");
+
+        assertEquals(List.of("one", "two", "four"), get(store, 1, 5));
+        assertEquals(List.of("two"), get(store, 2, 2));
+        assertEquals(List.of(), get(store, 3, 3));
+        store.close();
+    }
+
+    @Test
+    void laterSetOfTheSameSequenceWins() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "first");
+        store.set(1, "second");
+        assertEquals(List.of("second"), get(store, 1, 1));
+        store.close();
+
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("second"), get(store, 1, 1));
+        store.close();
+    }
+
+    @Test
+    void messagesAndSequenceNumbersSurviveReopen() throws IOException {
+        for (SyncMode sync : SyncMode.values()) {
+            Path base = dir.resolve(sync.name());
+            MappedMessageStore store = open(base, 1024, sync);
+            long created = store.getCreationTime().getTime();
+            store.set(1, "one");
+            store.set(2, "two");
+            store.setNextSenderMsgSeqNum(3);
+            store.setNextTargetMsgSeqNum(7);
+            store.incrNextTargetMsgSeqNum();
+            store.close();
+
+            store = open(base, 1024, sync);
+            assertEquals(List.of("one", "two"), get(store, 1, 2));
+            assertEquals(3, store.getNextSenderMsgSeqNum());
+            assertEquals(8, store.getNextTargetMsgSeqNum());
+            assertEquals(created, store.getCreationTime().getTime());
+            store.close();
+        }
+    }
+
+    @Test
+    void recoveryStopsAtATornRecord() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "one");
+        store.set(2, "two");
+        store.set(3, "three");
+        store.close();
+
+        // the last record's length is written last, so a crash before it leaves zero there
+        writeInt(body(), offset("one", "two"), 0);
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("one", "two"), get(store, 1, 3));
+
+        store.set(3, "again");
+        store.close();
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("one", "two", "again"), get(store, 1, 3));
+        store.close();
+    }
+
+    @Test
+    void recoveryStopsAtALengthPastTheEnd() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "one");
+        store.set(2, "two");
+        store.close();
+
+        writeInt(body(), offset("one"), Integer.MAX_VALUE - 4);
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("one"), get(store, 1, 2));
+        store.close();
+    }
+
+    @Test
+    void staleRecordPastAShorterOneIsNotRecovered() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "one");
+        // a long message with a whole record of this generation inside, where a short record will end
+        String inner = record(1, 3, "stale");
+        store.set(2, "x".repeat("two".length()) + inner + "x".repeat(20));
+        store.close();
+
+        writeInt(body(), offset("one"), 0);
+        store = open(SyncMode.NONE);
+        store.set(2, "two");
+        store.close();
+
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("one", "two"), get(store, 1, 3));
+        store.close();
+    }
+
+    @Test
+    void resetBumpsTheGenerationAndForgetsEverything() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "one");
+        store.set(2, "two");
+        store.setNextSenderMsgSeqNum(3);
+        store.setNextTargetMsgSeqNum(5);
+        store.reset();
+
+        assertEquals(List.of(), get(store, 1, 2));
+        assertEquals(1, store.getNextSenderMsgSeqNum());
+        assertEquals(1, store.getNextTargetMsgSeqNum());
+        store.close();
+
+        store = open(SyncMode.NONE);
+        assertEquals(List.of(), get(store, 1, 2));
+        assertEquals(1, store.getNextSenderMsgSeqNum());
+        store.set(1, "new");
+        store.close();
+
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("new"), get(store, 1, 2));
+        store.close();
+    }
+
+    @Test
+    void recordsFromBeforeAResetAreNotRecovered() throws IOException {
+        MappedMessageStore store = open(SyncMode.NONE);
+        store.set(1, "one");
+        store.set(2, "two");
+        store.reset();
+        store.set(1, "uno");
+        store.close();
+
+        // even if the marker after the new record is lost, the old record has the old generation
+        writeInt(body(), offset("uno"), "two".length());
+        store = open(SyncMode.NONE);
+        assertEquals(List.of("uno"), get(store, 1, 2));
+        store.close();
+    }
+
+    @Test
+    void growsPastTheInitialMapping() throws IOException {
+        MappedMessageStore store = open(dir, 64, SyncMode.BATCH);
+        List<String> sent = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            String m = "8=FIX.4.4\u000134=" + i + "\u000158=" + "x".repeat(i % 50) + "\u0001";
+            store.set(i, m);
+            sent.add(m);
+        }
+        assertEquals(sent, get(store, 1, 200));
+        store.sync();
+        store.close();
+        assertTrue(Files.size(body()) > 64);
+
+        store = open(dir, 64, SyncMode.BATCH);
+        assertEquals(sent, get(store, 1, 200));
+        store.set(201, "more");
+        assertEquals(List.of("more"), get(store, 201, 201));
+        store.close();
+    }
+
+    private MappedMessageStore open(SyncMode sync) throws IOException {
+        return open(dir, 1024, sync);
+    }
+
+    private static MappedMessageStore open(Path base, int initialMapBytes, SyncMode sync) throws IOException {
+        return new MappedMessageStore(SESSION, base.resolve("s.mheader"), base.resolve("s.mbody"),
+                initialMapBytes, sync, s -> { });
+    }
+
+    private Path body() {
+        return dir.resolve("s.mbody");
+    }
+
+    private static List<String> get(MappedMessageStore store, int from, int to) {
+        List<String> out = new ArrayList<>();
+        store.get(from, to, out);
+        return out;
+    }
+
+    // where the record after these messages starts
+    private static int offset(String... before) {
+        int off = 0;
+        for (String m : before) off += RECORD_HEADER + m.length();
+        return off;
+    }
+
+    // a body record as the store writes it, one char per byte
+    private static String record(int generation, int sequence, String message) {
+        ByteBuffer b = ByteBuffer.allocate(RECORD_HEADER).putInt(message.length()).putInt(generation).putInt(sequence);
+        StringBuilder sb = new StringBuilder();
+        for (byte x : b.array()) sb.append((char) (x & 0xff));
+        return sb.append(message).toString();
+    }
+
+    private static void writeInt(Path file, int offset, int value) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(0, value), offset);
+        }
+    }
+}
@@ -41,20 +41,93 @@ export function getUsername() {
   return localStorage.getItem('username')
 }
 
-// WebSocket message stream
-export function connectWebSocket(onMessage: (data: any) => void, onOpen?: () => void, onClose?: () => void) {
+// WebSocket message stream. Live events arrive in the hub's binary framing (fixhub.bin.v1):
+// CompIDs, MsgTypes etc. are sent once per connection and then referenced by id
+const BINARY_PROTOCOL = 'fixhub.bin.v1'
+
+function binaryDecoder() {
+  const dictionary: string[] = ['']
+  const utf8 = new TextDecoder('utf-8')
+
+  return (buffer: ArrayBuffer): any[] => {
+    const bytes = new Uint8Array(buffer)
+    let pos = 0
+    const varint = () => {
+      let result = 0
+      let scale = 1
+      let b: number
+      do {
+        b = bytes[pos++]
+        result += (b & 0x7f) * scale
+        scale *= 128
+      } while (b & 0x80)
+      return result
+    }
+    const text = () => {
+      const n = varint()
+      const s = utf8.decode(bytes.subarray(pos, pos + n))
+      pos += n
+      return s
+    }
+    const ref = () => {
+      const v = varint()
+      if (v === 0) return null
+      if (v === 1) return text()
+      const id = Math.floor(v / 2)
+      if (v % 2 === 1) dictionary[id] = text()
+      return dictionary[id]
+    }
+
+    if (bytes[0] !== 0x46 || bytes[1] !== 0x48 || bytes[2] !== 1) throw new Error('unknown binary frame')
+    pos = 3
+    const count = varint()
+    const events = []
+    let timestamp = 0
+    for (let i = 0; i < count; i++) {
+      const t = varint()
+      timestamp = i === 0 ? t : timestamp + (t % 2 === 0 ? t / 2 : -(t + 1) / 2)
+      const event: any = { timestamp }
+      event.type = ref()
+      event.sessionId = ref()
+      event.senderCompID = ref()
+      event.targetCompID = ref()
+      event.messageType = ref()
+      event.direction = ref()
+      event.messageBody = text()
+      events.push(event)
+    }
+    return events
+  }
+}
+
+export function connectWebSocket(onMessage: (data: any) => void, onOpen?: () => void, onClose?: () => void,
+                                 onSession?: (event: any) => void) {
   const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:'
-  const ws = new WebSocket(`${protocol}//${window.location.host}/ws/messages`)
+  const ws = new WebSocket(`${protocol}//${window.location.host}/ws/messages`, [BINARY_PROTOCOL])
+  ws.binaryType = 'arraybuffer'
+  const decode = binaryDecoder()
   
   ws.onopen = () => {
-    console.log('WebSocket connected')
+    console.log('WebSocket connected', ws.protocol || 'json')
     onOpen?.()
   }
   
   ws.onmessage = (event) => {
     try {
+      if (event.data instanceof ArrayBuffer) {
+        decode(event.data).forEach(onMessage)
+        return
+      }
       const data = JSON.parse(event.data)
-      onMessage(data)
+      // events arrive batched as arrays; slow clients may get summary frames instead,
+      // a journal replay ends with a replay_done frame, and FIX logons/logouts come as session frames
+      if (Array.isArray(data)) {
+        data.forEach(onMessage)
+      } else if (data.type === 'session') {
+        onSession?.(data)
+      } else if (data.type !== 'summary' && data.type !== 'replay_done') {
+        onMessage(data)
+      }
     } catch(e) {
       console.error('Failed to parse WebSocket message:', e)
     }
@@ -72,6 +145,23 @@ export function connectWebSocket(onMessage: (data: any) => void, onOpen?: () =>
   return ws
 }
 
+// Ask the hub to replay the latest journaled messages on this stream
+export function requestReplay(ws: WebSocket, limit: number, from?: number) {
+  ws.send(JSON.stringify({ action: 'replay', limit, from }))
+}
+
+// Message journal search
+export async function searchMessages(params: { from?: string | number, to?: string | number, session?: string,
+                                              msgType?: string, direction?: string, limit?: number, order?: string }) {
+  try {
+    const r = await axios.get('/api/messages', { params })
+    return r.data
+  } catch (e) {
+    console.error(e)
+    throw e
+  }
+}
+
 export async function getSessions(){
   try{
     const r = await axios.get('/api/sessions')
@@ -1,5 +1,5 @@
 import React, { useEffect, useState, useRef } from 'react'
-import { connectWebSocket } from '../api'
+import { connectWebSocket, requestReplay } from '../api'
 
 interface FIXMessage {
   type: string
@@ -26,7 +26,11 @@ export default function MessageStream() {
           return updated.slice(0, maxMessages)
         })
       },
-      () => setIsConnected(true),
+      () => {
+        setIsConnected(true)
+        // backfill from the hub journal so the list is not empty after a (re)connect
+        if (wsRef.current) requestReplay(wsRef.current, maxMessages)
+      },
       () => setIsConnected(false)
     )
 